@@ -0,0 +1,510 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * 按列存储的查询结果，列名只保存一次，每列的值保存在数组中。
+ * 整数、长整数、浮点数、布尔、日期和时间戳列在驱动返回标准类型时使用基本类型数组保存，否则退回对象数组。
+ * 作为行的列表使用时，每行是一个只读的轻量映射视图，按列名读取时不区分大小写。
+ */
+public final class ColumnarResult
+    extends AbstractList<Map<String, Object>>
+    implements RandomAccess {
+    /**
+     * 列数组的初始容量。
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * 列名，按列的顺序排列。
+     */
+    @Nonnull
+    private final String[] columnLabels;
+
+    /**
+     * 列名到列序号的映射，不区分大小写。
+     */
+    @Nonnull
+    private final Map<String, Integer> columnIndexes;
+
+    /**
+     * 各列的值。
+     */
+    @Nonnull
+    private final Column[] columns;
+
+    /**
+     * 行数。
+     */
+    private int rowCount;
+
+    private ColumnarResult(String[] columnLabels, Column[] columns) {
+        this.columnLabels = columnLabels;
+        this.columns = columns;
+        this.columnIndexes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int column = 1; column <= columnLabels.length; ++column) {
+            columnIndexes.putIfAbsent(columnLabels[column - 1], column);
+        }
+    }
+
+    /**
+     * 从结果集当前位置之后读取所有行。
+     *
+     * @param resultSet
+     *     结果集。
+     * @return 查询结果。
+     * @throws SQLException
+     *     读取失败。
+     */
+    @Nonnull
+    public static ColumnarResult from(@Nonnull ResultSet resultSet)
+        throws SQLException {
+        return from(resultSet, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 从结果集当前位置之后读取最多若干行。
+     *
+     * @param resultSet
+     *     结果集。
+     * @param maxRows
+     *     最多行数。
+     * @return 查询结果。
+     * @throws SQLException
+     *     读取失败。
+     */
+    @Nonnull
+    public static ColumnarResult from(@Nonnull ResultSet resultSet, int maxRows)
+        throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] columnLabels = new String[columnCount];
+        Column[] columns = new Column[columnCount];
+        for (int column = 1; column <= columnCount; ++column) {
+            String label = metaData.getColumnLabel(column);
+            if (label == null || label.isEmpty()) {
+                label = metaData.getColumnName(column);
+            }
+            columnLabels[column - 1] = label;
+            columns[column - 1] = createColumn(metaData.getColumnType(column));
+        }
+
+        ColumnarResult result = new ColumnarResult(columnLabels, columns);
+        while (result.rowCount < maxRows && resultSet.next()) {
+            for (int column = 0; column < columnCount; ++column) {
+                columns[column] = columns[column].add(result.rowCount, resultSet.getObject(column + 1));
+            }
+            ++result.rowCount;
+        }
+        return result;
+    }
+
+    /**
+     * 按 JDBC 类型选择列的存储方式。
+     */
+    private static Column createColumn(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return new IntColumn();
+            case Types.BIGINT:
+                return new LongColumn();
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return new DoubleColumn();
+            case Types.BOOLEAN:
+                return new BooleanColumn();
+            case Types.DATE:
+                return new DateColumn();
+            case Types.TIMESTAMP:
+                return new TimestampColumn();
+            default:
+                return new ObjectColumn();
+        }
+    }
+
+    /**
+     * 获取列数。
+     */
+    public int getColumnCount() {
+        return columnLabels.length;
+    }
+
+    /**
+     * 获取列名。
+     *
+     * @param column
+     *     列序号，从 1 开始。
+     * @return 列名。
+     */
+    @Nonnull
+    public String getColumnLabel(int column) {
+        return columnLabels[column - 1];
+    }
+
+    /**
+     * 获取列序号，没有该列时返回 0。
+     *
+     * @param label
+     *     列名，不区分大小写。
+     * @return 列序号，从 1 开始。
+     */
+    public int getColumnIndex(@Nonnull String label) {
+        Integer column = columnIndexes.get(label);
+        return column == null ? 0 : column;
+    }
+
+    /**
+     * 获取指定行指定列的值。
+     *
+     * @param row
+     *     行序号，从 0 开始。
+     * @param column
+     *     列序号，从 1 开始。
+     * @return 值。
+     */
+    @Nullable
+    public Object getValue(int row, int column) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException(row);
+        }
+        return columns[column - 1].get(row);
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        if (index < 0 || index >= rowCount) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return new RowMap(index);
+    }
+
+    @Override
+    public int size() {
+        return rowCount;
+    }
+
+    /**
+     * 行的只读映射视图。
+     */
+    private final class RowMap
+        extends AbstractMap<String, Object> {
+        /**
+         * 行序号。
+         */
+        private final int row;
+
+        RowMap(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (!(key instanceof String label)) {
+                return null;
+            }
+            int column = getColumnIndex(label);
+            return column == 0 ? null : columns[column - 1].get(row);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String label && getColumnIndex(label) != 0;
+        }
+
+        @Override
+        public int size() {
+            return columnLabels.length;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int column;
+
+                        @Override
+                        public boolean hasNext() {
+                            return column < columnLabels.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, Object> entry = new SimpleImmutableEntry<>(columnLabels[column], columns[column].get(row));
+                            ++column;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return columnLabels.length;
+                }
+            };
+        }
+    }
+
+    /**
+     * 一列的值。
+     */
+    private abstract static class Column {
+        /**
+         * 追加一行的值，返回追加后的列，值不是该列支持的类型时转换为对象列。
+         */
+        abstract Column add(int row, Object value);
+
+        /**
+         * 获取一行的值。
+         */
+        abstract Object get(int row);
+
+        /**
+         * 转换为对象列。
+         */
+        Column toObjectColumn(int rowCount) {
+            ObjectColumn objectColumn = new ObjectColumn();
+            for (int row = 0; row < rowCount; ++row) {
+                objectColumn.add(row, get(row));
+            }
+            return objectColumn;
+        }
+
+        static int grow(int capacity, int row) {
+            int newCapacity = capacity;
+            while (newCapacity <= row) {
+                newCapacity = Math.max(newCapacity * 2, INITIAL_CAPACITY);
+            }
+            return newCapacity;
+        }
+    }
+
+    /**
+     * 对象列。
+     */
+    private static final class ObjectColumn
+        extends Column {
+        private Object[] values = new Object[0];
+
+        @Override
+        Column add(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row));
+            }
+            values[row] = value;
+            return this;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * 使用基本类型数组保存的列，空值记录在位图中。
+     */
+    private abstract static class PrimitiveColumn
+        extends Column {
+        private final BitSet nulls = new BitSet();
+
+        @Override
+        Column add(int row, Object value) {
+            if (value == null) {
+                nulls.set(row);
+                return this;
+            }
+            if (!accepts(value)) {
+                return toObjectColumn(row).add(row, value);
+            }
+            store(row, value);
+            return this;
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            return load(row);
+        }
+
+        abstract boolean accepts(Object value);
+
+        abstract void store(int row, Object value);
+
+        abstract Object load(int row);
+    }
+
+    private static final class IntColumn
+        extends PrimitiveColumn {
+        private int[] values = new int[0];
+
+        @Override
+        boolean accepts(Object value) {
+            return value.getClass() == Integer.class;
+        }
+
+        @Override
+        void store(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row));
+            }
+            values[row] = (Integer) value;
+        }
+
+        @Override
+        Object load(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class LongColumn
+        extends PrimitiveColumn {
+        private long[] values = new long[0];
+
+        @Override
+        boolean accepts(Object value) {
+            return value.getClass() == Long.class;
+        }
+
+        @Override
+        void store(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row));
+            }
+            values[row] = (Long) value;
+        }
+
+        @Override
+        Object load(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class DoubleColumn
+        extends PrimitiveColumn {
+        private double[] values = new double[0];
+
+        @Override
+        boolean accepts(Object value) {
+            return value.getClass() == Double.class;
+        }
+
+        @Override
+        void store(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row));
+            }
+            values[row] = (Double) value;
+        }
+
+        @Override
+        Object load(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class BooleanColumn
+        extends PrimitiveColumn {
+        private final BitSet values = new BitSet();
+
+        @Override
+        boolean accepts(Object value) {
+            return value.getClass() == Boolean.class;
+        }
+
+        @Override
+        void store(int row, Object value) {
+            values.set(row, (Boolean) value);
+        }
+
+        @Override
+        Object load(int row) {
+            return values.get(row);
+        }
+    }
+
+    private static final class DateColumn
+        extends PrimitiveColumn {
+        private long[] values = new long[0];
+
+        @Override
+        boolean accepts(Object value) {
+            return value.getClass() == Date.class;
+        }
+
+        @Override
+        void store(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row));
+            }
+            values[row] = ((Date) value).getTime();
+        }
+
+        @Override
+        Object load(int row) {
+            return new Date(values[row]);
+        }
+    }
+
+    private static final class TimestampColumn
+        extends PrimitiveColumn {
+        private long[] seconds = new long[0];
+
+        private int[] nanos = new int[0];
+
+        @Override
+        boolean accepts(Object value) {
+            return value.getClass() == Timestamp.class;
+        }
+
+        @Override
+        void store(int row, Object value) {
+            if (row >= seconds.length) {
+                int capacity = grow(seconds.length, row);
+                seconds = Arrays.copyOf(seconds, capacity);
+                nanos = Arrays.copyOf(nanos, capacity);
+            }
+            Timestamp timestamp = (Timestamp) value;
+            seconds[row] = Math.floorDiv(timestamp.getTime(), 1000L);
+            nanos[row] = timestamp.getNanos();
+        }
+
+        @Override
+        Object load(int row) {
+            Timestamp timestamp = new Timestamp(seconds[row] * 1000L);
+            timestamp.setNanos(nanos[row]);
+            return timestamp;
+        }
+    }
+}
@@ -4,18 +4,42 @@
  */
 package net.matrix.sql.hibernate;
 
+import java.util.List;
+
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
+import net.matrix.text.ResourceBundleMessageFormatter;
+
 /**
  * HQL 工具。
  */
 @ThreadSafe
 public final class HQLmx {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(HQLmx.class).useCurrentLocale();
+
     private static final char[] PARAMETER_PREFIX = {
         ':', 'p'
     };
 
+    private static final String[] JOIN_FETCH = {
+        "join", "fetch"
+    };
+
+    private static final String[] DISTINCT = {
+        "distinct"
+    };
+
+    /**
+     * 实体名之后出现时表示实体没有别名的关键字。
+     */
+    private static final String[] ROOT_ALIAS_TERMINATORS = {
+        "join", "left", "right", "inner", "outer", "full", "cross", "where", "group", "having", "order", "union"
+    };
+
     /**
      * 阻止实例化。
      */
@@ -44,4 +68,264 @@ public final class HQLmx {
     public static String getParameterName(int index) {
         return PARAMETER_PREFIX[1] + Integer.toString(index);
     }
+
+    /**
+     * 查找 HQL 中最外层的子句关键字，忽略括号内的子查询和引号内的字符串，不区分大小写。
+     * 关键字由多个单词组成时，单词之间可以有任意空白。
+     *
+     * @param hql
+     *     HQL。
+     * @param keyword
+     *     子句关键字，如“where”、“order by”。
+     * @return 关键字开始位置，没有找到时返回 -1。
+     */
+    public static int indexOfClause(@Nonnull String hql, @Nonnull String keyword) {
+        String[] words = keyword.trim().split("\\s+");
+        int depth = 0;
+        char quote = 0;
+        for (int index = 0; index < hql.length(); ++index) {
+            char c = hql.charAt(index);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '(') {
+                ++depth;
+            } else if (c == ')') {
+                --depth;
+            } else if (depth == 0 && (index == 0 || !Character.isJavaIdentifierPart(hql.charAt(index - 1)))) {
+                if (matchWords(hql, index, words) >= 0) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 从指定位置开始匹配单词序列。
+     *
+     * @return 匹配结束位置，不匹配时返回 -1。
+     */
+    private static int matchWords(String hql, int start, String[] words) {
+        int position = start;
+        for (int i = 0; i < words.length; ++i) {
+            if (i > 0) {
+                int wordStart = position;
+                while (position < hql.length() && Character.isWhitespace(hql.charAt(position))) {
+                    ++position;
+                }
+                if (position == wordStart) {
+                    return -1;
+                }
+            }
+            String word = words[i];
+            if (!hql.regionMatches(true, position, word, 0, word.length())) {
+                return -1;
+            }
+            position += word.length();
+        }
+        if (position < hql.length() && Character.isJavaIdentifierPart(hql.charAt(position))) {
+            return -1;
+        }
+        return position;
+    }
+
+    /**
+     * 从查询 HQL 生成统计总行数的 HQL，去掉最外层的 order by 子句和 join fetch 中的 fetch。
+     * 去掉 fetch 后，查询根对象时统计不重复的根对象，与 Hibernate 对抓取关联的查询结果去重一致。
+     * 查询使用 group by 子句或多列 distinct 时，把原查询作为子查询统计行数。
+     *
+     * @param hql
+     *     查询 HQL。
+     * @return 统计 HQL。
+     * @throws IllegalArgumentException
+     *     HQL 中没有 from 子句。
+     */
+    @Nonnull
+    public static String toCountQuery(@Nonnull String hql) {
+        String query = hql.strip();
+        int orderBy = indexOfClause(query, "order by");
+        if (orderBy >= 0) {
+            query = query.substring(0, orderBy).stripTrailing();
+        }
+        String withoutFetch = removeFetch(query);
+        boolean fetchRemoved = !withoutFetch.equals(query);
+        query = withoutFetch;
+
+        int from = indexOfClause(query, "from");
+        if (from < 0) {
+            throw new IllegalArgumentException(RBMF.format("HQL {0} 中没有 from 子句", hql));
+        }
+        String selectList = "";
+        int select = indexOfClause(query, "select");
+        if (select >= 0 && select < from) {
+            selectList = query.substring(select + "select".length(), from).strip();
+        }
+        int distinctEnd = matchWords(selectList, 0, DISTINCT);
+
+        if (indexOfClause(query, "group by") >= 0 || (distinctEnd >= 0 && selectList.indexOf(',') >= 0)) {
+            return "select count(*) from (" + query + ") counted";
+        }
+        if (distinctEnd >= 0) {
+            return "select count(distinct " + selectList.substring(distinctEnd).strip() + ") " + query.substring(from);
+        }
+        if (fetchRemoved) {
+            String rootAlias = getRootAlias(query.substring(from + "from".length()));
+            if (rootAlias != null && (selectList.isEmpty() || selectList.equals(rootAlias))) {
+                return "select count(distinct " + rootAlias + ") " + query.substring(from);
+            }
+        }
+        return "select count(*) " + query.substring(from);
+    }
+
+    /**
+     * 获取 from 子句中第一个实体的别名，没有别名时返回 null。
+     */
+    private static String getRootAlias(String fromClause) {
+        String[] tokens = fromClause.strip().split("\\s+", 4);
+        int index = 1;
+        if (tokens.length > index && "as".equalsIgnoreCase(tokens[index])) {
+            ++index;
+        }
+        if (tokens.length <= index) {
+            return null;
+        }
+        String alias = tokens[index];
+        for (String keyword : ROOT_ALIAS_TERMINATORS) {
+            if (keyword.equalsIgnoreCase(alias)) {
+                return null;
+            }
+        }
+        for (int i = 0; i < alias.length(); ++i) {
+            if (!Character.isJavaIdentifierPart(alias.charAt(i))) {
+                return null;
+            }
+        }
+        return alias;
+    }
+
+    /**
+     * 把最外层的“join fetch”改为“join”，统计查询中不能抓取关联。
+     */
+    private static String removeFetch(String hql) {
+        StringBuilder result = new StringBuilder(hql.length());
+        String rest = hql;
+        int index = indexOfClause(rest, "join fetch");
+        while (index >= 0) {
+            result.append(rest, 0, index).append("join");
+            rest = rest.substring(matchWords(rest, index, JOIN_FETCH));
+            index = indexOfClause(rest, "join fetch");
+        }
+        return result.append(rest).toString();
+    }
+
+    /**
+     * 把 HQL 改写为键集分页查询，加入“(k1, k2) > (:pN, :pN+1)”形式的条件和按键排序。
+     * HQL 中不能有最外层的 order by 子句，键的组合必须唯一。
+     *
+     * @param hql
+     *     HQL。
+     * @param keyPaths
+     *     键的属性路径。
+     * @param ascending
+     *     是否升序。
+     * @param parameterIndex
+     *     键条件的第一个参数序号，参数名格式同 {@link #getParameterName(int)}。
+     * @param withPredicate
+     *     是否加入键条件，查询第一页时不加入。
+     * @return 键集分页查询 HQL。
+     * @throws IllegalArgumentException
+     *     HQL 中有 order by 子句或没有键。
+     */
+    @Nonnull
+    public static String toKeysetQuery(@Nonnull String hql, @Nonnull List<String> keyPaths, boolean ascending, int parameterIndex, boolean withPredicate) {
+        if (keyPaths.isEmpty()) {
+            throw new IllegalArgumentException(RBMF.get("没有键集分页的键"));
+        }
+        if (indexOfClause(hql, "order by") >= 0) {
+            throw new IllegalArgumentException(RBMF.format("HQL {0} 中已有 order by 子句", hql));
+        }
+
+        StringBuilder result = new StringBuilder(hql.length() + 64);
+        if (withPredicate) {
+            int end = hql.length();
+            int groupBy = indexOfClause(hql, "group by");
+            if (groupBy >= 0) {
+                end = groupBy;
+            } else {
+                int having = indexOfClause(hql, "having");
+                if (having >= 0) {
+                    end = having;
+                }
+            }
+            int where = indexOfClause(hql, "where");
+            if (where >= 0) {
+                int conditionStart = where + "where".length();
+                result.append(hql, 0, conditionStart).append(" (").append(hql.substring(conditionStart, end).trim()).append(") and ");
+            } else {
+                result.append(hql.substring(0, end).stripTrailing()).append(" where ");
+            }
+            appendKeysetPredicate(result, keyPaths, ascending, parameterIndex);
+            if (end < hql.length()) {
+                result.append(' ').append(hql.substring(end).trim());
+            }
+        } else {
+            result.append(hql.stripTrailing());
+        }
+
+        result.append(" order by ");
+        for (int i = 0; i < keyPaths.size(); ++i) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append(keyPaths.get(i)).append(ascending ? " asc" : " desc");
+        }
+        return result.toString();
+    }
+
+    /**
+     * 在 HQL 中拼入键集分页条件，格式为“(k1, k2) > (:pN, :pN+1)”，降序时使用“<”。
+     *
+     * @param hql
+     *     HQL。
+     * @param keyPaths
+     *     键的属性路径。
+     * @param ascending
+     *     是否升序。
+     * @param parameterIndex
+     *     第一个参数序号。
+     */
+    public static void appendKeysetPredicate(@Nonnull StringBuilder hql, @Nonnull List<String> keyPaths, boolean ascending, int parameterIndex) {
+        boolean tuple = keyPaths.size() > 1;
+        if (tuple) {
+            hql.append('(');
+        }
+        for (int i = 0; i < keyPaths.size(); ++i) {
+            if (i > 0) {
+                hql.append(", ");
+            }
+            hql.append(keyPaths.get(i));
+        }
+        if (tuple) {
+            hql.append(')');
+        }
+        hql.append(ascending ? " > " : " < ");
+        if (tuple) {
+            hql.append('(');
+        }
+        for (int i = 0; i < keyPaths.size(); ++i) {
+            if (i > 0) {
+                hql.append(", ");
+            }
+            appendParameterName(hql, parameterIndex + i);
+        }
+        if (tuple) {
+            hql.append(')');
+        }
+    }
 }
@@ -5,35 +5,104 @@
 package net.matrix.sql.hibernate;
 
 import java.io.Serializable;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import jakarta.persistence.Tuple;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaDelete;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.EntityType;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventEngine;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.jpa.event.spi.CallbackRegistry;
+import org.hibernate.jpa.event.spi.CallbackType;
+import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.query.MutationQuery;
 import org.hibernate.query.Query;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.OffsetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 
 import net.matrix.java.lang.ClassMx;
+import net.matrix.text.ResourceBundleMessageFormatter;
 
 /**
  * 使用 Hibernate 原生 API 的泛型 DAO 基类。
  */
 public class HibernateDAO<T, ID extends Serializable> {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(HibernateDAO.class).useCurrentLocale();
+
+    /**
+     * 方言没有限制时，IN 查询的参数数量上限。
+     */
+    private static final int DEFAULT_IN_EXPRESSION_LIMIT = 1000;
+
+    /**
+     * 流式查询默认的 JDBC 抓取大小。
+     */
+    private static final int DEFAULT_FETCH_SIZE = 100;
+
+    /**
+     * 没有配置 hibernate.jdbc.batch_size 时，分批保存使用的批量大小。
+     */
+    private static final int DEFAULT_SAVE_BATCH_SIZE = 100;
+
+    /**
+     * 缓存的查询 HQL 数量上限，避免任意的排序参数使缓存无限增长。
+     */
+    private static final int MAX_CACHED_QUERIES = 256;
+
+    /**
+     * 排序属性路径的格式。
+     */
+    private static final Pattern PROPERTY_PATH_PATTERN = Pattern.compile("[A-Za-z_$][\\w$]*(\\.[A-Za-z_$][\\w$]*)*");
+
     /**
      * 实体类。
      */
@@ -51,6 +120,71 @@ public class HibernateDAO<T, ID extends Serializable> {
      */
     private boolean autoFlush;
 
+    /**
+     * 流式查询的 JDBC 抓取大小，也是从会话中移除已处理实体对象的间隔。
+     */
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    /**
+     * 是否支持不加载实体对象、直接按 id 批量删除，未检查时为 null。
+     */
+    @Nullable
+    private volatile Boolean bulkDeleteSupported;
+
+    /**
+     * 判断 id 是否存在的 HQL，未生成时为 null。
+     */
+    @Nullable
+    private volatile String existsByIdQuery;
+
+    /**
+     * 统计实体对象数量的 HQL，未生成时为 null。
+     */
+    @Nullable
+    private volatile String countQuery;
+
+    /**
+     * 按排序参数缓存的查询实体对象的 HQL。
+     */
+    @Nonnull
+    private final Map<Sort, String> selectQueries = new ConcurrentHashMap<>();
+
+    /**
+     * 按规格和排序参数缓存的条件查询，规格对象不再使用后自动移除。
+     */
+    @Nonnull
+    private final Map<Specification<T>, Map<Sort, CriteriaQuery<T>>> specSelectQueries = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * 按规格缓存的统计数量的条件查询，规格对象不再使用后自动移除。
+     */
+    @Nonnull
+    private final Map<Specification<T>, CriteriaQuery<Long>> specCountQueries = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * 按规格缓存的判断是否存在的条件查询，规格对象不再使用后自动移除。
+     */
+    @Nonnull
+    private final Map<Specification<T>, CriteriaQuery<Integer>> specExistsQueries = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * 按投影类型缓存的映射。
+     */
+    @Nonnull
+    private final Map<Class<?>, ProjectionMapping<?>> projectionMappings = new ConcurrentHashMap<>();
+
+    /**
+     * 分页查询使用的近似总数的缓存有效期，为 null 时不缓存。
+     */
+    @Nullable
+    private Duration countCacheTtl;
+
+    /**
+     * 缓存的近似总数，未缓存时为 null。
+     */
+    @Nullable
+    private volatile CachedCount cachedCount;
+
     /**
      * 构造器，读取子类的泛型定义获取实体类。
      *
@@ -108,6 +242,50 @@ public class HibernateDAO<T, ID extends Serializable> {
         this.autoFlush = autoFlush;
     }
 
+    /**
+     * 获取流式查询的 JDBC 抓取大小。
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * 设置流式查询的 JDBC 抓取大小，也是从会话中移除已处理实体对象的间隔。
+     *
+     * @param fetchSize
+     *     JDBC 抓取大小。
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * 获取分页查询使用的近似总数的缓存有效期。
+     */
+    @Nullable
+    public Duration getCountCacheTtl() {
+        return countCacheTtl;
+    }
+
+    /**
+     * 设置分页查询使用的近似总数的缓存有效期。
+     * 设置后 {@link #findAll(Pageable)} 在有效期内复用上次统计的总数，总数可能与实际不符。
+     *
+     * @param countCacheTtl
+     *     缓存有效期，为 null 时不缓存。
+     */
+    public void setCountCacheTtl(@Nullable Duration countCacheTtl) {
+        this.countCacheTtl = countCacheTtl;
+        this.cachedCount = null;
+    }
+
+    /**
+     * 清除缓存的近似总数。
+     */
+    public void clearCountCache() {
+        cachedCount = null;
+    }
+
     /**
      * 获取 Hibernate 当前会话。
      */
@@ -166,6 +344,105 @@ public class HibernateDAO<T, ID extends Serializable> {
         return result;
     }
 
+    /**
+     * 分批保存实体对象集合，批量大小与 hibernate.jdbc.batch_size 一致，返回保存的实体对象数量。
+     * 每保存一批调用 flush() 并把该批实体对象从会话中移除，持久化上下文的大小不随实体对象数量增长。
+     *
+     * @param entities
+     *     实体对象集合。
+     */
+    public <S extends T> long saveAllInBatches(@Nonnull Iterable<S> entities) {
+        return saveAllInBatches(entities, 0, null);
+    }
+
+    /**
+     * 分批保存实体对象集合，批量大小与 hibernate.jdbc.batch_size 一致，返回保存的实体对象数量。
+     * 每保存一批调用 flush() 并把该批实体对象从会话中移除，持久化上下文的大小不随实体对象数量增长。
+     *
+     * @param entities
+     *     实体对象集合。
+     * @param progress
+     *     每保存一批后调用，参数为已保存的实体对象数量。
+     */
+    public <S extends T> long saveAllInBatches(@Nonnull Iterable<S> entities, @Nullable LongConsumer progress) {
+        return saveAllInBatches(entities, 0, progress);
+    }
+
+    /**
+     * 分批保存实体对象集合，返回保存的实体对象数量。
+     * 每保存一批调用 flush() 并把该批实体对象从会话中移除，持久化上下文的大小不随实体对象数量增长。
+     * 按实体对象集合的顺序保存，互相引用的实体对象应按依赖顺序给出；
+     * 需要合并同类型的 SQL 语句时配置 hibernate.order_inserts 和 hibernate.order_updates，由 Hibernate 按依赖关系重排。
+     *
+     * @param entities
+     *     实体对象集合。
+     * @param batchSize
+     *     批量大小，不大于 0 时使用 hibernate.jdbc.batch_size。
+     * @param progress
+     *     每保存一批后调用，参数为已保存的实体对象数量。
+     */
+    public <S extends T> long saveAllInBatches(@Nonnull Iterable<S> entities, int batchSize, @Nullable LongConsumer progress) {
+        Session session = getCurrentSession();
+        int size = batchSize > 0 ? batchSize : getJdbcBatchSize();
+
+        Integer jdbcBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(size);
+        try {
+            long count = 0;
+            List<S> batch = new ArrayList<>(size);
+            for (S entity : entities) {
+                batch.add(entity);
+                if (batch.size() >= size) {
+                    count += saveBatch(session, batch);
+                    if (progress != null) {
+                        progress.accept(count);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                count += saveBatch(session, batch);
+                if (progress != null) {
+                    progress.accept(count);
+                }
+            }
+            return count;
+        } finally {
+            session.setJdbcBatchSize(jdbcBatchSize);
+        }
+    }
+
+    /**
+     * 保存一批实体对象，调用 flush() 后从会话中移除，返回该批实体对象数量。
+     */
+    private <S extends T> int saveBatch(Session session, List<S> batch) {
+        for (S entity : batch) {
+            if (session.contains(entity)) {
+                session.merge(entity);
+            } else {
+                session.persist(entity);
+            }
+        }
+        session.flush();
+        for (S entity : batch) {
+            session.detach(entity);
+        }
+
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+
+    /**
+     * 获取配置的 JDBC 批量大小。
+     */
+    private int getJdbcBatchSize() {
+        int batchSize = HibernateHelper.getJdbcBatchSize(sessionFactory);
+        if (batchSize <= 0) {
+            return DEFAULT_SAVE_BATCH_SIZE;
+        }
+        return batchSize;
+    }
+
     /**
      * 按 id 获取实体对象。
      *
@@ -182,6 +459,7 @@ public class HibernateDAO<T, ID extends Serializable> {
 
     /**
      * 判断指定 id 是否存在对应实体对象。
+     * 先检查持久化上下文，再查询 id 是否存在，不加载实体对象。
      *
      * @param id
      *     id。
@@ -189,8 +467,22 @@ public class HibernateDAO<T, ID extends Serializable> {
     public boolean existsById(ID id) {
         Session session = getCurrentSession();
 
-        T entity = session.get(entityClass, id);
-        return entity != null;
+        SessionImplementor sessionImplementor = session.unwrap(SessionImplementor.class);
+        PersistenceContext persistenceContext = sessionImplementor.getPersistenceContextInternal();
+        Object entity = persistenceContext.getEntity(sessionImplementor.generateEntityKey(id, getEntityPersister()));
+        if (entity != null) {
+            EntityEntry entry = persistenceContext.getEntry(entity);
+            return entry == null || (entry.getStatus() != Status.DELETED && entry.getStatus() != Status.GONE);
+        }
+
+        String queryString = getExistsByIdQuery();
+        if (queryString == null) {
+            return session.get(entityClass, id) != null;
+        }
+        Query<Integer> query = session.createQuery(queryString, Integer.class);
+        query.setParameter("id", id);
+        query.setMaxResults(1);
+        return query.uniqueResult() != null;
     }
 
     /**
@@ -198,29 +490,45 @@ public class HibernateDAO<T, ID extends Serializable> {
      */
     @Nonnull
     public List<T> findAll() {
-        Session session = getCurrentSession();
-        CriteriaBuilder criteriaBuilder = getCriteriaBuilder();
-
-        CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(entityClass);
-        Root<T> root = criteriaQuery.from(entityClass);
-        criteriaQuery.select(root);
-        Query<T> query = session.createQuery(criteriaQuery);
+        Query<T> query = createQuery(getCurrentSession(), null);
         return query.list();
     }
 
     /**
-     * 按 id 集合获取实体对象集合。
+     * 按 id 集合获取实体对象集合，结果按 id 集合的顺序排列，跳过不存在的 id。
      *
      * @param ids
      *     id 集合。
      */
     @Nonnull
     public List<T> findAllById(@Nonnull Iterable<ID> ids) {
+        return findAllById(ids, true);
+    }
+
+    /**
+     * 按 id 集合获取实体对象集合，跳过不存在的 id。
+     * 持久化上下文中没有的实体对象按方言的参数数量限制分批使用 IN 查询加载。
+     *
+     * @param ids
+     *     id 集合。
+     * @param preserveOrder
+     *     结果是否按 id 集合的顺序排列。
+     */
+    @Nonnull
+    public List<T> findAllById(@Nonnull Iterable<ID> ids, boolean preserveOrder) {
         Session session = getCurrentSession();
 
-        List<T> result = new ArrayList<>();
+        List<ID> idList = new ArrayList<>();
         for (ID id : ids) {
-            T entity = session.get(entityClass, id);
+            idList.add(id);
+        }
+        if (idList.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<T> entities = session.byMultipleIds(entityClass).enableSessionCheck(true).enableOrderedReturn(preserveOrder).multiLoad(idList);
+        List<T> result = new ArrayList<>(entities.size());
+        for (T entity : entities) {
             if (entity == null) {
                 continue;
             }
@@ -235,12 +543,8 @@ public class HibernateDAO<T, ID extends Serializable> {
      */
     public long count() {
         Session session = getCurrentSession();
-        CriteriaBuilder criteriaBuilder = getCriteriaBuilder();
 
-        CriteriaQuery<Long> criteriaQuery = criteriaBuilder.createQuery(Long.class);
-        Root<T> root = criteriaQuery.from(entityClass);
-        criteriaQuery.select(criteriaBuilder.count(root));
-        Query<Long> query = session.createQuery(criteriaQuery);
+        Query<Long> query = session.createQuery(getCountQuery(), Long.class);
         return query.getSingleResult();
     }
 
@@ -253,6 +557,12 @@ public class HibernateDAO<T, ID extends Serializable> {
     public void deleteById(ID id) {
         Session session = getCurrentSession();
 
+        if (isBulkDeleteSupported()) {
+            bulkDeleteById(session, List.of(id));
+            autoFlush(session);
+            return;
+        }
+
         T entity = session.get(entityClass, id);
         if (entity == null) {
             return;
@@ -288,6 +598,16 @@ public class HibernateDAO<T, ID extends Serializable> {
     public void deleteAllById(@Nonnull Iterable<? extends ID> ids) {
         Session session = getCurrentSession();
 
+        if (isBulkDeleteSupported()) {
+            List<ID> idList = new ArrayList<>();
+            for (ID id : ids) {
+                idList.add(id);
+            }
+            bulkDeleteById(session, idList);
+            autoFlush(session);
+            return;
+        }
+
         for (ID id : ids) {
             T entity = session.get(entityClass, id);
             if (entity == null) {
@@ -339,73 +659,863 @@ public class HibernateDAO<T, ID extends Serializable> {
      */
     @Nonnull
     public List<T> findAll(@Nullable Sort sort) {
+        Query<T> query = createQuery(getCurrentSession(), sort);
+        return query.list();
+    }
+
+    /**
+     * 以流的形式获取所有实体对象，使用只向前的游标逐批读取，内存占用不随行数增长。
+     * 实体对象以只读方式加载，每处理一批后从会话中移除，对其的修改不会保存。
+     * 使用完毕后需要关闭流以释放游标。
+     */
+    @Nonnull
+    public Stream<T> streamAll() {
+        return streamAll(null);
+    }
+
+    /**
+     * 以流的形式获取所有实体对象，支持排序，使用只向前的游标逐批读取，内存占用不随行数增长。
+     * 实体对象以只读方式加载，每处理一批后从会话中移除，对其的修改不会保存。
+     * 使用完毕后需要关闭流以释放游标。
+     *
+     * @param sort
+     *     排序参数。
+     */
+    @Nonnull
+    public Stream<T> streamAll(@Nullable Sort sort) {
         Session session = getCurrentSession();
-        CriteriaBuilder criteriaBuilder = getCriteriaBuilder();
+        int batchSize = Math.max(fetchSize, 1);
 
-        CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(entityClass);
-        Root<T> root = criteriaQuery.from(entityClass);
-        criteriaQuery.select(root);
-        applySort(criteriaBuilder, criteriaQuery, root, sort);
-        Query<T> query = session.createQuery(criteriaQuery);
-        return query.list();
+        Query<T> query = createQuery(session, sort);
+        query.setReadOnly(true);
+        query.setFetchSize(batchSize);
+        ScrollableResults<T> results = query.scroll(ScrollMode.FORWARD_ONLY);
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private final List<T> processed = new ArrayList<>(batchSize);
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (processed.size() >= batchSize) {
+                    evict();
+                }
+                if (!results.next()) {
+                    evict();
+                    return false;
+                }
+
+                T entity = results.get();
+                processed.add(entity);
+                action.accept(entity);
+                return true;
+            }
+
+            private void evict() {
+                for (T entity : processed) {
+                    session.detach(entity);
+                }
+                processed.clear();
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(results::close);
+    }
+
+    /**
+     * 逐个处理所有实体对象，使用只向前的游标逐批读取，内存占用不随行数增长。
+     * 实体对象以只读方式加载，每处理一批后从会话中移除，对其的修改不会保存。
+     *
+     * @param action
+     *     处理实体对象的回调。
+     */
+    public void forEach(@Nonnull Consumer<? super T> action) {
+        forEach(null, action);
+    }
+
+    /**
+     * 按排序逐个处理所有实体对象，使用只向前的游标逐批读取，内存占用不随行数增长。
+     * 实体对象以只读方式加载，每处理一批后从会话中移除，对其的修改不会保存。
+     *
+     * @param sort
+     *     排序参数。
+     * @param action
+     *     处理实体对象的回调。
+     */
+    public void forEach(@Nullable Sort sort, @Nonnull Consumer<? super T> action) {
+        try (Stream<T> stream = streamAll(sort)) {
+            stream.forEach(action);
+        }
     }
 
     /**
      * 获取所有实体对象集合，支持分页。
+     * 本页不满并且可以确定总数时不执行统计查询，设置了近似总数的缓存有效期时复用缓存的总数。
      *
      * @param pageable
      *     分页参数。
      */
     @Nonnull
     public Page<T> findAll(@Nonnull Pageable pageable) {
-        Session session = getCurrentSession();
-        CriteriaBuilder criteriaBuilder = getCriteriaBuilder();
+        List<T> result = findAll(pageable.getSort(), pageable.getOffset(), pageable.getPageSize());
+        return toPage(result, pageable, this::countForPage);
+    }
 
-        CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(entityClass);
-        Root<T> root = criteriaQuery.from(entityClass);
-        criteriaQuery.select(root);
-        applySort(criteriaBuilder, criteriaQuery, root, pageable.getSort());
-        Query<T> query = session.createQuery(criteriaQuery);
-        query.setFirstResult((int) pageable.getOffset());
-        query.setMaxResults(pageable.getPageSize());
-        List<T> result = query.list();
+    /**
+     * 获取实体对象切片，多查询一行判断是否有下一页，不执行统计查询。
+     *
+     * @param pageable
+     *     分页参数。
+     */
+    @Nonnull
+    public Slice<T> findSlice(@Nonnull Pageable pageable) {
+        int pageSize = pageable.getPageSize();
+        List<T> result = findAll(pageable.getSort(), pageable.getOffset(), pageSize + 1);
 
-        long total = count();
-        return new PageImpl(result, pageable, total);
+        boolean hasNext = result.size() > pageSize;
+        List<T> content = hasNext ? new ArrayList<>(result.subList(0, pageSize)) : result;
+        return new SliceImpl<>(content, pageable, hasNext);
     }
 
     /**
-     * 根据设置自动调用 flush()。
+     * 获取实体对象窗口，使用偏移量分页，多查询一行判断是否有下一页，不执行统计查询。
+     *
+     * @param position
+     *     偏移量位置。
+     * @param sort
+     *     排序参数。
+     * @param limit
+     *     最多行数。
      */
-    private void autoFlush(Session session) {
-        if (isAutoFlush()) {
-            session.flush();
-        }
+    @Nonnull
+    public Window<T> findAll(@Nonnull OffsetScrollPosition position, @Nullable Sort sort, int limit) {
+        long offset = position.isInitial() ? 0 : position.getOffset() + 1;
+        List<T> result = findAll(sort, offset, limit + 1);
+
+        boolean hasNext = result.size() > limit;
+        List<T> content = hasNext ? new ArrayList<>(result.subList(0, limit)) : result;
+        return Window.from(content, position.positionFunction(), hasNext);
     }
 
     /**
-     * 设置排序。
+     * 按规格获取实体对象集合。
+     *
+     * @param spec
+     *     规格，为 null 时不过滤。
      */
-    private static void applySort(CriteriaBuilder criteriaBuilder, CriteriaQuery criteriaQuery, Root root, Sort sort) {
-        if (sort == null) {
-            return;
-        }
+    @Nonnull
+    public List<T> findAll(@Nullable Specification<T> spec) {
+        return findAll(spec, Map.of(), (Sort) null);
+    }
 
-        List<Order> jpaOrders = new ArrayList<>();
-        for (Sort.Order order : sort) {
-            Expression property = root.get(order.getProperty());
-            if (order.isIgnoreCase()) {
-                property = criteriaBuilder.lower(property);
-            }
+    /**
+     * 按规格获取实体对象集合，绑定规格中的命名参数。
+     *
+     * @param spec
+     *     规格，为 null 时不过滤。
+     * @param parameters
+     *     命名参数。
+     */
+    @Nonnull
+    public List<T> findAll(@Nullable Specification<T> spec, @Nonnull Map<String, ?> parameters) {
+        return findAll(spec, parameters, (Sort) null);
+    }
 
-            Order jpaOrder;
-            if (order.isAscending()) {
-                jpaOrder = criteriaBuilder.asc(property);
-            } else {
-                jpaOrder = criteriaBuilder.desc(property);
-            }
-            jpaOrders.add(jpaOrder);
-        }
-        criteriaQuery.orderBy(jpaOrders);
+    /**
+     * 按规格获取实体对象集合，支持排序。
+     *
+     * @param spec
+     *     规格，为 null 时不过滤。
+     * @param sort
+     *     排序参数。
+     */
+    @Nonnull
+    public List<T> findAll(@Nullable Specification<T> spec, @Nullable Sort sort) {
+        return findAll(spec, Map.of(), sort);
+    }
+
+    /**
+     * 按规格获取实体对象集合，绑定规格中的命名参数，支持排序。
+     *
+     * @param spec
+     *     规格，为 null 时不过滤。
+     * @param parameters
+     *     命名参数。
+     * @param sort
+     *     排序参数。
+     */
+    @Nonnull
+    public List<T> findAll(@Nullable Specification<T> spec, @Nonnull Map<String, ?> parameters, @Nullable Sort sort) {
+        Query<T> query = createQuery(getCurrentSession(), spec, parameters, sort);
+        return query.list();
+    }
+
+    /**
+     * 按规格获取实体对象集合，支持分页。
+     *
+     * @param spec
+     *     规格，为 null 时不过滤。
+     * @param pageable
+     *     分页参数。
+     */
+    @Nonnull
+    public Page<T> findAll(@Nullable Specification<T> spec, @Nonnull Pageable pageable) {
+        return findAll(spec, Map.of(), pageable);
+    }
+
+    /**
+     * 按规格获取实体对象集合，绑定规格中的命名参数，支持分页。
+     * 本页不满并且可以确定总数时不执行统计查询。
+     *
+     * @param spec
+     *     规格，为 null 时不过滤。
+     * @param parameters
+     *     命名参数。
+     * @param pageable
+     *     分页参数。
+     */
+    @Nonnull
+    public Page<T> findAll(@Nullable Specification<T> spec, @Nonnull Map<String, ?> parameters, @Nonnull Pageable pageable) {
+        Query<T> query = createQuery(getCurrentSession(), spec, parameters, pageable.getSort());
+        query.setFirstResult(Math.toIntExact(pageable.getOffset()));
+        query.setMaxResults(pageable.getPageSize());
+        List<T> result = query.list();
+        return toPage(result, pageable, () -> count(spec, parameters));
+    }
+
+    /**
+     * 按规格统计实体对象数量。
+     *
+     * @param spec
+     *     规格，为 null 时不过滤。
+     */
+    public long count(@Nullable Specification<T> spec) {
+        return count(spec, Map.of());
+    }
+
+    /**
+     * 按规格统计实体对象数量，绑定规格中的命名参数。
+     *
+     * @param spec
+     *     规格，为 null 时不过滤。
+     * @param parameters
+     *     命名参数。
+     */
+    public long count(@Nullable Specification<T> spec, @Nonnull Map<String, ?> parameters) {
+        if (spec == null) {
+            return count();
+        }
+
+        CriteriaQuery<Long> criteriaQuery = specCountQueries.computeIfAbsent(spec, this::createCountCriteriaQuery);
+        Query<Long> query = getCurrentSession().createQuery(criteriaQuery);
+        query.setQueryPlanCacheable(true);
+        setParameters(query, parameters);
+        return query.getSingleResult();
+    }
+
+    /**
+     * 按规格判断是否存在实体对象，最多查询一行，不加载实体对象。
+     *
+     * @param spec
+     *     规格，为 null 时不过滤。
+     */
+    public boolean exists(@Nullable Specification<T> spec) {
+        return exists(spec, Map.of());
+    }
+
+    /**
+     * 按规格判断是否存在实体对象，绑定规格中的命名参数，最多查询一行，不加载实体对象。
+     *
+     * @param spec
+     *     规格，为 null 时不过滤。
+     * @param parameters
+     *     命名参数。
+     */
+    public boolean exists(@Nullable Specification<T> spec, @Nonnull Map<String, ?> parameters) {
+        CriteriaQuery<Integer> criteriaQuery;
+        if (spec == null) {
+            criteriaQuery = createExistsCriteriaQuery(null);
+        } else {
+            criteriaQuery = specExistsQueries.computeIfAbsent(spec, this::createExistsCriteriaQuery);
+        }
+        Query<Integer> query = getCurrentSession().createQuery(criteriaQuery);
+        query.setQueryPlanCacheable(spec != null);
+        setParameters(query, parameters);
+        query.setMaxResults(1);
+        return query.uniqueResult() != null;
+    }
+
+    /**
+     * 获取所有实体对象的投影，只查询投影需要的属性，支持排序。
+     * 投影类型可以是记录类、构造器参数与实体属性同名的类，或者只有 getter 方法的接口。
+     *
+     * @param projectionType
+     *     投影类型。
+     * @param sort
+     *     排序参数。
+     */
+    @Nonnull
+    public <R> List<R> findAllProjected(@Nonnull Class<R> projectionType, @Nullable Sort sort) {
+        return findAllProjected(projectionType, null, sort);
+    }
+
+    /**
+     * 按规格获取实体对象的投影，只查询投影需要的属性，支持排序。
+     * 投影类型可以是记录类、构造器参数与实体属性同名的类，或者只有 getter 方法的接口。
+     *
+     * @param projectionType
+     *     投影类型。
+     * @param spec
+     *     规格，为 null 时不过滤。
+     * @param sort
+     *     排序参数。
+     */
+    @Nonnull
+    public <R> List<R> findAllProjected(@Nonnull Class<R> projectionType, @Nullable Specification<T> spec, @Nullable Sort sort) {
+        ProjectionMapping<R> mapping = getProjectionMapping(projectionType);
+        Query<?> query = createProjectionQuery(mapping, spec, sort);
+        return mapping.map(query.list());
+    }
+
+    /**
+     * 按规格获取实体对象的投影，只查询投影需要的属性，支持分页。
+     * 投影类型可以是记录类、构造器参数与实体属性同名的类，或者只有 getter 方法的接口。
+     *
+     * @param projectionType
+     *     投影类型。
+     * @param spec
+     *     规格，为 null 时不过滤。
+     * @param pageable
+     *     分页参数。
+     */
+    @Nonnull
+    public <R> Page<R> findAllProjected(@Nonnull Class<R> projectionType, @Nullable Specification<T> spec, @Nonnull Pageable pageable) {
+        ProjectionMapping<R> mapping = getProjectionMapping(projectionType);
+        Query<?> query = createProjectionQuery(mapping, spec, pageable.getSort());
+        query.setFirstResult(Math.toIntExact(pageable.getOffset()));
+        query.setMaxResults(pageable.getPageSize());
+        List<R> result = mapping.map(query.list());
+        return toPage(result, pageable, () -> count(spec));
+    }
+
+    /**
+     * 获取投影类型的映射，按投影类型缓存。
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private <R> ProjectionMapping<R> getProjectionMapping(@Nonnull Class<R> projectionType) {
+        // 缓存以投影类型为键，映射的类型参数与键一致
+        return (ProjectionMapping<R>) projectionMappings.computeIfAbsent(projectionType, ProjectionMapping::of);
+    }
+
+    /**
+     * 创建投影查询，接口投影时查询元组，否则查询投影类型。
+     */
+    @Nonnull
+    private <R> Query<?> createProjectionQuery(@Nonnull ProjectionMapping<R> mapping, @Nullable Specification<T> spec, @Nullable Sort sort) {
+        CriteriaBuilder criteriaBuilder = getCriteriaBuilder();
+        if (mapping.isInterface()) {
+            return createProjectionQuery(Tuple.class, root -> mapping.createTupleSelection(criteriaBuilder, root), spec, sort);
+        }
+        return createProjectionQuery(mapping.getType(), root -> mapping.createConstructorSelection(criteriaBuilder, root), spec, sort);
+    }
+
+    /**
+     * 创建投影查询，结果不是受管理的实体对象，以只读方式执行，不保留脏检查快照。
+     */
+    @Nonnull
+    private <P> Query<P> createProjectionQuery(@Nonnull Class<P> resultType, @Nonnull Function<Root<T>, Selection<P>> selection,
+        @Nullable Specification<T> spec, @Nullable Sort sort) {
+        CriteriaBuilder criteriaBuilder = getCriteriaBuilder();
+
+        CriteriaQuery<P> criteriaQuery = criteriaBuilder.createQuery(resultType);
+        Root<T> root = criteriaQuery.from(entityClass);
+        criteriaQuery.select(selection.apply(root));
+        if (spec != null) {
+            applySpecification(criteriaBuilder, criteriaQuery, root, spec);
+        }
+        applySort(criteriaBuilder, criteriaQuery, root, sort);
+        Query<P> query = getCurrentSession().createQuery(criteriaQuery);
+        query.setReadOnly(true);
+        return query;
+    }
+
+    /**
+     * 创建按规格查询实体对象的查询，规格不为 null 时按规格和排序参数缓存条件查询。
+     */
+    @Nonnull
+    private Query<T> createQuery(@Nonnull Session session, @Nullable Specification<T> spec, @Nonnull Map<String, ?> parameters, @Nullable Sort sort) {
+        if (spec == null) {
+            return createQuery(session, sort);
+        }
+
+        Sort key = sort == null ? Sort.unsorted() : sort;
+        Map<Sort, CriteriaQuery<T>> criteriaQueries = specSelectQueries.computeIfAbsent(spec, k -> new ConcurrentHashMap<>());
+        CriteriaQuery<T> criteriaQuery = criteriaQueries.get(key);
+        if (criteriaQuery == null) {
+            criteriaQuery = createCriteriaQuery(spec, key);
+            if (criteriaQueries.size() < MAX_CACHED_QUERIES) {
+                criteriaQueries.putIfAbsent(key, criteriaQuery);
+            }
+        }
+        Query<T> query = session.createQuery(criteriaQuery);
+        // 条件查询默认不缓存查询计划，缓存的条件查询需要显式开启
+        query.setQueryPlanCacheable(true);
+        setParameters(query, parameters);
+        return query;
+    }
+
+    /**
+     * 生成按规格查询实体对象的条件查询。
+     */
+    @Nonnull
+    private CriteriaQuery<T> createCriteriaQuery(@Nonnull Specification<T> spec, @Nonnull Sort sort) {
+        CriteriaBuilder criteriaBuilder = getCriteriaBuilder();
+
+        CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(entityClass);
+        Root<T> root = criteriaQuery.from(entityClass);
+        criteriaQuery.select(root);
+        applySpecification(criteriaBuilder, criteriaQuery, root, spec);
+        applySort(criteriaBuilder, criteriaQuery, root, sort);
+        return criteriaQuery;
+    }
+
+    /**
+     * 生成按规格统计实体对象数量的条件查询，规格设置了 distinct 时统计不重复的数量。
+     */
+    @Nonnull
+    private CriteriaQuery<Long> createCountCriteriaQuery(@Nonnull Specification<T> spec) {
+        CriteriaBuilder criteriaBuilder = getCriteriaBuilder();
+
+        CriteriaQuery<Long> criteriaQuery = criteriaBuilder.createQuery(Long.class);
+        Root<T> root = criteriaQuery.from(entityClass);
+        applySpecification(criteriaBuilder, criteriaQuery, root, spec);
+        if (criteriaQuery.isDistinct()) {
+            criteriaQuery.select(criteriaBuilder.countDistinct(root));
+        } else {
+            criteriaQuery.select(criteriaBuilder.count(root));
+        }
+        criteriaQuery.distinct(false);
+        return criteriaQuery;
+    }
+
+    /**
+     * 生成按规格判断是否存在实体对象的条件查询。
+     */
+    @Nonnull
+    private CriteriaQuery<Integer> createExistsCriteriaQuery(@Nullable Specification<T> spec) {
+        CriteriaBuilder criteriaBuilder = getCriteriaBuilder();
+
+        CriteriaQuery<Integer> criteriaQuery = criteriaBuilder.createQuery(Integer.class);
+        Root<T> root = criteriaQuery.from(entityClass);
+        criteriaQuery.select(criteriaBuilder.literal(1));
+        if (spec != null) {
+            applySpecification(criteriaBuilder, criteriaQuery, root, spec);
+        }
+        return criteriaQuery;
+    }
+
+    /**
+     * 设置规格生成的过滤条件。
+     */
+    private static <T> void applySpecification(CriteriaBuilder criteriaBuilder, CriteriaQuery<?> criteriaQuery, Root<T> root, Specification<T> spec) {
+        Predicate predicate = spec.toPredicate(root, criteriaQuery, criteriaBuilder);
+        if (predicate != null) {
+            criteriaQuery.where(predicate);
+        }
+    }
+
+    /**
+     * 绑定命名参数。
+     */
+    private static void setParameters(Query<?> query, Map<String, ?> parameters) {
+        for (Map.Entry<String, ?> parameter : parameters.entrySet()) {
+            query.setParameter(parameter.getKey(), parameter.getValue());
+        }
+    }
+
+    /**
+     * 生成分页结果，本页不满并且可以确定总数时不执行统计查询。
+     */
+    @Nonnull
+    private static <T> Page<T> toPage(List<T> result, Pageable pageable, LongSupplier counter) {
+        long offset = pageable.getOffset();
+        long total;
+        if (result.size() < pageable.getPageSize() && (offset == 0 || !result.isEmpty())) {
+            total = offset + result.size();
+        } else {
+            total = counter.getAsLong();
+        }
+        return new PageImpl<>(result, pageable, total);
+    }
+
+    /**
+     * 查询从指定偏移量开始的若干行。
+     */
+    @Nonnull
+    private List<T> findAll(@Nullable Sort sort, long offset, int maxResults) {
+        Query<T> query = createQuery(getCurrentSession(), sort);
+        query.setFirstResult(Math.toIntExact(offset));
+        query.setMaxResults(maxResults);
+        return query.list();
+    }
+
+    /**
+     * 创建查询所有实体对象的查询，支持排序。
+     */
+    @Nonnull
+    private Query<T> createQuery(@Nonnull Session session, @Nullable Sort sort) {
+        return session.createQuery(getSelectQuery(sort), entityClass);
+    }
+
+    /**
+     * 获取查询所有实体对象的 HQL，按排序参数缓存。
+     * 相同的 HQL 字符串可以复用 Hibernate 的查询计划缓存，省去构建条件查询和语义分析的开销。
+     */
+    @Nonnull
+    private String getSelectQuery(@Nullable Sort sort) {
+        Sort key = sort == null ? Sort.unsorted() : sort;
+        String queryString = selectQueries.get(key);
+        if (queryString == null) {
+            queryString = createSelectQuery(key);
+            if (selectQueries.size() < MAX_CACHED_QUERIES) {
+                selectQueries.putIfAbsent(key, queryString);
+            }
+        }
+        return queryString;
+    }
+
+    /**
+     * 生成查询所有实体对象的 HQL。
+     *
+     * @throws IllegalArgumentException
+     *     排序属性格式错误。
+     */
+    @Nonnull
+    private String createSelectQuery(@Nonnull Sort sort) {
+        StringBuilder queryString = new StringBuilder("select e from ").append(getEntityPersister().getEntityName()).append(" e");
+        String separator = " order by ";
+        for (Sort.Order order : sort) {
+            String property = order.getProperty();
+            if (!PROPERTY_PATH_PATTERN.matcher(property).matches()) {
+                throw new IllegalArgumentException(RBMF.format("排序属性 {0} 格式错误", property));
+            }
+
+            queryString.append(separator);
+            if (order.isIgnoreCase()) {
+                queryString.append("lower(e.").append(property).append(')');
+            } else {
+                queryString.append("e.").append(property);
+            }
+            queryString.append(order.isAscending() ? " asc" : " desc");
+            separator = ", ";
+        }
+        return queryString.toString();
+    }
+
+    /**
+     * 获取统计实体对象数量的 HQL。
+     */
+    @Nonnull
+    private String getCountQuery() {
+        String queryString = countQuery;
+        if (queryString == null) {
+            queryString = "select count(e) from " + getEntityPersister().getEntityName() + " e";
+            countQuery = queryString;
+        }
+        return queryString;
+    }
+
+    /**
+     * 统计分页查询使用的总数，设置了缓存有效期时在有效期内复用缓存的总数。
+     */
+    private long countForPage() {
+        Duration ttl = countCacheTtl;
+        if (ttl == null) {
+            return count();
+        }
+
+        long now = System.nanoTime();
+        CachedCount cached = cachedCount;
+        if (cached != null && now - cached.expireTime() < 0) {
+            return cached.count();
+        }
+        long total = count();
+        cachedCount = new CachedCount(total, now + ttl.toNanos());
+        return total;
+    }
+
+    /**
+     * 获取实体类的 Hibernate 持久化器。
+     */
+    @Nonnull
+    private EntityPersister getEntityPersister() {
+        return sessionFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel().getEntityDescriptor(entityClass);
+    }
+
+    /**
+     * 获取实体类的 id 属性名，复合 id 时返回 null。
+     */
+    @Nullable
+    private String getIdAttributeName() {
+        EntityType<T> entityType = sessionFactory.getMetamodel().entity(entityClass);
+        if (!entityType.hasSingleIdAttribute()) {
+            return null;
+        }
+        return entityType.getId(entityType.getIdType().getJavaType()).getName();
+    }
+
+    /**
+     * 获取判断 id 是否存在的 HQL，复合 id 时返回 null。
+     * 使用固定的 HQL 字符串，可以复用 Hibernate 的查询计划缓存。
+     */
+    @Nullable
+    private String getExistsByIdQuery() {
+        String queryString = existsByIdQuery;
+        if (queryString == null) {
+            String idAttributeName = getIdAttributeName();
+            if (idAttributeName == null) {
+                return null;
+            }
+            queryString = "select 1 from " + getEntityPersister().getEntityName() + " e where e." + idAttributeName + " = :id";
+            existsByIdQuery = queryString;
+        }
+        return queryString;
+    }
+
+    /**
+     * 判断是否支持不加载实体对象、直接按 id 批量删除。
+     * 实体类有单一 id 属性，并且没有级联、集合、删除回调和删除事件监听器时支持。
+     */
+    private boolean isBulkDeleteSupported() {
+        Boolean supported = bulkDeleteSupported;
+        if (supported == null) {
+            supported = checkBulkDeleteSupported();
+            bulkDeleteSupported = supported;
+        }
+        return supported;
+    }
+
+    /**
+     * 检查实体类的映射和事件配置是否支持直接按 id 批量删除。
+     */
+    private boolean checkBulkDeleteSupported() {
+        if (getIdAttributeName() == null) {
+            return false;
+        }
+
+        EntityPersister persister = getEntityPersister();
+        if (persister.hasCascades() || persister.hasCollections() || persister.implementsLifecycle()) {
+            return false;
+        }
+
+        EventEngine eventEngine = sessionFactory.unwrap(SessionFactoryImplementor.class).getEventEngine();
+        CallbackRegistry callbackRegistry = eventEngine.getCallbackRegistry();
+        if (callbackRegistry.hasRegisteredCallbacks(entityClass, CallbackType.PRE_REMOVE)
+            || callbackRegistry.hasRegisteredCallbacks(entityClass, CallbackType.POST_REMOVE)) {
+            return false;
+        }
+        EventListenerRegistry listenerRegistry = eventEngine.getListenerRegistry();
+        return listenerRegistry.getEventListenerGroup(EventType.PRE_DELETE).isEmpty() && listenerRegistry.getEventListenerGroup(EventType.POST_DELETE).isEmpty()
+            && listenerRegistry.getEventListenerGroup(EventType.POST_COMMIT_DELETE).isEmpty();
+    }
+
+    /**
+     * 获取 IN 查询的参数数量上限。
+     */
+    private int getInExpressionLimit() {
+        int limit = sessionFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect().getInExpressionCountLimit();
+        if (limit <= 0) {
+            return DEFAULT_IN_EXPRESSION_LIMIT;
+        }
+        return limit;
+    }
+
+    /**
+     * 不加载实体对象，按方言的参数数量限制分批执行 DELETE 语句按 id 删除，然后从持久化上下文中移除对应的实体对象。
+     * 删除语句会使实体类的二级缓存失效。
+     */
+    private void bulkDeleteById(Session session, List<? extends ID> ids) {
+        CriteriaBuilder criteriaBuilder = getCriteriaBuilder();
+        String idAttributeName = getIdAttributeName();
+        int chunkSize = getInExpressionLimit();
+
+        for (int fromIndex = 0; fromIndex < ids.size(); fromIndex += chunkSize) {
+            List<? extends ID> chunk = ids.subList(fromIndex, Math.min(fromIndex + chunkSize, ids.size()));
+            CriteriaDelete<T> criteriaDelete = criteriaBuilder.createCriteriaDelete(entityClass);
+            Root<T> root = criteriaDelete.from(entityClass);
+            criteriaDelete.where(root.get(idAttributeName).in(chunk));
+            MutationQuery query = session.createMutationQuery(criteriaDelete);
+            query.executeUpdate();
+        }
+
+        SessionImplementor sessionImplementor = session.unwrap(SessionImplementor.class);
+        PersistenceContext persistenceContext = sessionImplementor.getPersistenceContextInternal();
+        EntityPersister persister = getEntityPersister();
+        for (ID id : ids) {
+            Object entity = persistenceContext.getEntity(sessionImplementor.generateEntityKey(id, persister));
+            if (entity != null) {
+                session.detach(entity);
+            }
+        }
+    }
+
+    /**
+     * 获取实体对象窗口，使用键集分页，查询位置之后的若干行，耗时不随翻页深度增长。
+     * 排序中没有 id 属性时自动追加 id 升序，保证键的组合唯一。
+     * 窗口中各行的位置可以用 {@link KeysetCursor} 序列化为字符串。
+     *
+     * @param position
+     *     键集位置。
+     * @param sort
+     *     排序参数。
+     * @param limit
+     *     最多行数。
+     */
+    @Nonnull
+    public Window<T> findAll(@Nonnull KeysetScrollPosition position, @Nonnull Sort sort, int limit) {
+        Session session = getCurrentSession();
+        CriteriaBuilder criteriaBuilder = getCriteriaBuilder();
+
+        Sort keysetSort = getKeysetSort(sort);
+        Sort querySort = position.scrollsForward() ? keysetSort : keysetSort.reverse();
+        CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(entityClass);
+        Root<T> root = criteriaQuery.from(entityClass);
+        criteriaQuery.select(root);
+        if (!position.isInitial()) {
+            criteriaQuery.where(createKeysetPredicate(criteriaBuilder, root, querySort, position.getKeys()));
+        }
+        applySort(criteriaBuilder, criteriaQuery, root, querySort);
+        Query<T> query = session.createQuery(criteriaQuery);
+        query.setMaxResults(limit + 1);
+        List<T> result = query.list();
+
+        boolean hasNext = result.size() > limit;
+        List<T> content = new ArrayList<>(hasNext ? result.subList(0, limit) : result);
+        if (position.scrollsBackward()) {
+            Collections.reverse(content);
+        }
+        return Window.from(content, index -> ScrollPosition.of(extractKeys(session, content.get(index), keysetSort), position.getDirection()), hasNext);
+    }
+
+    /**
+     * 获取键集分页使用的排序，排序中没有 id 属性时追加 id 升序。
+     */
+    @Nonnull
+    private Sort getKeysetSort(@Nonnull Sort sort) {
+        String idAttributeName = getIdAttributeName();
+        if (idAttributeName == null || sort.getOrderFor(idAttributeName) != null) {
+            return sort;
+        }
+        return sort.and(Sort.by(idAttributeName));
+    }
+
+    /**
+     * 生成键集分页条件，格式为“k1 > v1 or (k1 = v1 and k2 > v2) or ...”，降序的键使用“<”。
+     *
+     * @throws IllegalArgumentException
+     *     键值为 null。
+     */
+    @Nonnull
+    private static Predicate createKeysetPredicate(CriteriaBuilder criteriaBuilder, Root<?> root, Sort sort, Map<String, Object> keys) {
+        List<Predicate> disjunction = new ArrayList<>();
+        List<Predicate> equalities = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            String name = order.getProperty();
+            Object key = keys.get(name);
+            if (key == null) {
+                throw new IllegalArgumentException(RBMF.format("键集位置中键 {0} 的值为空", name));
+            }
+
+            Expression<Comparable<Object>> property;
+            Expression<Comparable<Object>> value;
+            if (order.isIgnoreCase()) {
+                property = asComparable(criteriaBuilder.lower(root.get(name)));
+                value = asComparable(criteriaBuilder.lower(criteriaBuilder.literal(key.toString())));
+            } else {
+                property = root.get(name);
+                value = asComparable(criteriaBuilder.literal(key));
+            }
+
+            List<Predicate> conjunction = new ArrayList<>(equalities);
+            if (order.isAscending()) {
+                conjunction.add(criteriaBuilder.greaterThan(property, value));
+            } else {
+                conjunction.add(criteriaBuilder.lessThan(property, value));
+            }
+            disjunction.add(criteriaBuilder.and(conjunction.toArray(new Predicate[0])));
+            equalities.add(criteriaBuilder.equal(property, value));
+        }
+        return criteriaBuilder.or(disjunction.toArray(new Predicate[0]));
+    }
+
+    /**
+     * 把表达式作为可比较的表达式使用，键集分页的键都是可比较的类型。
+     */
+    @SuppressWarnings("unchecked")
+    private static Expression<Comparable<Object>> asComparable(Expression<?> expression) {
+        return (Expression<Comparable<Object>>) expression;
+    }
+
+    /**
+     * 从实体对象中提取键值。
+     */
+    @Nonnull
+    private Map<String, Object> extractKeys(Session session, T entity, Sort sort) {
+        EntityPersister persister = getEntityPersister();
+        String idAttributeName = getIdAttributeName();
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Sort.Order order : sort) {
+            String property = order.getProperty();
+            if (property.equals(idAttributeName)) {
+                keys.put(property, persister.getIdentifier(entity, session.unwrap(SessionImplementor.class)));
+            } else {
+                keys.put(property, persister.getPropertyValue(entity, property));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 根据设置自动调用 flush()。
+     */
+    private void autoFlush(Session session) {
+        if (isAutoFlush()) {
+            session.flush();
+        }
+    }
+
+    /**
+     * 设置排序。
+     */
+    private static void applySort(CriteriaBuilder criteriaBuilder, CriteriaQuery criteriaQuery, Root root, Sort sort) {
+        if (sort == null) {
+            return;
+        }
+
+        List<Order> jpaOrders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            Expression property = root.get(order.getProperty());
+            if (order.isIgnoreCase()) {
+                property = criteriaBuilder.lower(property);
+            }
+
+            Order jpaOrder;
+            if (order.isAscending()) {
+                jpaOrder = criteriaBuilder.asc(property);
+            } else {
+                jpaOrder = criteriaBuilder.desc(property);
+            }
+            jpaOrders.add(jpaOrder);
+        }
+        criteriaQuery.orderBy(jpaOrders);
+    }
+
+    /**
+     * 缓存的近似总数。
+     *
+     * @param count
+     *     总数。
+     * @param expireTime
+     *     过期时间，{@link System#nanoTime()} 的值。
+     */
+    private record CachedCount(long count, long expireTime) {
     }
 }
@@ -7,10 +7,22 @@ package net.matrix.sql.hibernate;
 import java.io.Serializable;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -19,14 +31,23 @@ import javax.annotation.concurrent.ThreadSafe;
 import org.apache.commons.dbutils.BasicRowProcessor;
 import org.apache.commons.dbutils.RowProcessor;
 import org.apache.commons.dbutils.handlers.MapListHandler;
+import org.hibernate.Hibernate;
 import org.hibernate.ObjectNotFoundException;
 import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.dialect.pagination.LimitHandler;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.jdbc.ReturningWork;
 import org.hibernate.query.MutationQuery;
 import org.hibernate.query.Query;
+import org.hibernate.query.spi.Limit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.matrix.sql.BatchedPreparedStatement;
+
 /**
  * Hibernate 工具。
  */
@@ -41,6 +62,28 @@ public final class HibernateHelper {
 
     private static final RowProcessor ROW_PROCESSOR = new BasicRowProcessor();
 
+    /**
+     * 没有配置 hibernate.jdbc.batch_size 时，批量操作使用的 JDBC 批量大小。
+     */
+    private static final int DEFAULT_BULK_BATCH_SIZE = 100;
+
+    /**
+     * 当前线程的查询选项，由 {@link #withQueryOptions(QueryOptions, Supplier)} 设置。
+     */
+    private static final ThreadLocal<QueryOptions> QUERY_OPTIONS = new ThreadLocal<>();
+
+    /**
+     * 默认查询选项。
+     */
+    @Nonnull
+    private static volatile QueryOptions defaultQueryOptions = QueryOptions.DEFAULT;
+
+    /**
+     * 查询结果缓存，为 null 时不缓存。
+     */
+    @Nullable
+    private static volatile QueryResultCache queryResultCache;
+
     /**
      * 阻止实例化。
      */
@@ -67,6 +110,132 @@ public final class HibernateHelper {
         return context.getSession();
     }
 
+    /**
+     * 获取默认查询选项。
+     */
+    @Nonnull
+    public static QueryOptions getDefaultQueryOptions() {
+        return defaultQueryOptions;
+    }
+
+    /**
+     * 设置默认查询选项，应用于所有 HQL 查询、修改语句和原生 SQL 语句。
+     *
+     * @param options
+     *     默认查询选项。
+     */
+    public static void setDefaultQueryOptions(@Nonnull QueryOptions options) {
+        defaultQueryOptions = options;
+    }
+
+    /**
+     * 在当前线程中使用指定查询选项执行操作，操作中调用的所有查询方法都使用该选项，代替默认查询选项。
+     *
+     * @param options
+     *     查询选项。
+     * @param work
+     *     操作。
+     * @return 操作结果。
+     */
+    public static <T> T withQueryOptions(@Nonnull QueryOptions options, @Nonnull Supplier<T> work) {
+        QueryOptions previous = QUERY_OPTIONS.get();
+        QUERY_OPTIONS.set(options);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                QUERY_OPTIONS.remove();
+            } else {
+                QUERY_OPTIONS.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 获取当前线程使用的查询选项。
+     */
+    @Nonnull
+    static QueryOptions getQueryOptions() {
+        QueryOptions options = QUERY_OPTIONS.get();
+        if (options == null) {
+            return defaultQueryOptions;
+        }
+        return options;
+    }
+
+    /**
+     * 获取查询结果缓存。
+     *
+     * @return 查询结果缓存，没有启用时为 null。
+     */
+    @Nullable
+    public static QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
+    /**
+     * 设置查询结果缓存，启用后 queryAll、queryCount、querySQLAsMap 和 querySQLCount 使用缓存，
+     * execute、updateSQL 和对象的写方法使相关的缓存失效，会话工厂管理器建立的会话从建立时开始跟踪写操作。
+     *
+     * @param cache
+     *     查询结果缓存，为 null 时停用。
+     */
+    public static synchronized void setQueryResultCache(@Nullable QueryResultCache cache) {
+        QueryResultCache previous = queryResultCache;
+        if (previous == cache) {
+            return;
+        }
+        if (previous != null) {
+            SessionFactoryManager.removeSessionListener(previous.getSessionListener());
+        }
+        if (cache != null) {
+            SessionFactoryManager.addSessionListener(cache.getSessionListener());
+        }
+        queryResultCache = cache;
+    }
+
+    /**
+     * 启用查询结果缓存时从缓存获取查询结果，否则直接加载。
+     */
+    private static <T> T cached(Session session, String kind, String query, Object params, Supplier<T> loader) {
+        QueryResultCache cache = queryResultCache;
+        if (cache == null) {
+            return loader.get();
+        }
+        return cache.get(session, kind, query, params, loader);
+    }
+
+    /**
+     * 启用查询结果缓存时从缓存获取 HQL 查询结果，查询选择了实体或没有启用缓存时直接加载。
+     */
+    private static <T> T cachedSelection(Session session, String kind, String query, Object params, Supplier<T> loader) {
+        QueryResultCache cache = queryResultCache;
+        if (cache == null) {
+            return loader.get();
+        }
+        return cache.getSelection(session, kind, query, params, loader);
+    }
+
+    /**
+     * 启用查询结果缓存时，使修改语句目标相关的缓存失效。
+     */
+    private static void invalidateStatement(Session session, String statement) {
+        QueryResultCache cache = queryResultCache;
+        if (cache != null) {
+            cache.invalidateStatement(session, statement);
+        }
+    }
+
+    /**
+     * 启用查询结果缓存时，使实体相关的缓存失效。
+     */
+    private static void invalidateEntity(Session session, Class<?> entityClass) {
+        QueryResultCache cache = queryResultCache;
+        if (cache != null) {
+            cache.invalidateEntity(session, entityClass);
+        }
+    }
+
     public static void beginTransaction() {
         getTransactionContext().begin();
     }
@@ -75,6 +244,22 @@ public final class HibernateHelper {
         getTransactionContext(sessionFactoryName).begin();
     }
 
+    public static void beginReadOnlyTransaction() {
+        getTransactionContext().beginReadOnly();
+    }
+
+    public static void beginReadOnlyTransaction(@Nonnull String sessionFactoryName) {
+        getTransactionContext(sessionFactoryName).beginReadOnly();
+    }
+
+    public static void beginDeferredTransaction() {
+        getTransactionContext().beginDeferred();
+    }
+
+    public static void beginDeferredTransaction(@Nonnull String sessionFactoryName) {
+        getTransactionContext(sessionFactoryName).beginDeferred();
+    }
+
     public static void commitTransaction() {
         getTransactionContext().commit();
     }
@@ -99,12 +284,43 @@ public final class HibernateHelper {
         getTransactionContext(sessionFactoryName).release();
     }
 
+    /**
+     * 在事务中执行操作，按默认重试策略重试。
+     */
+    public static <T> T inTransaction(@Nonnull Function<HibernateTransactionContext, T> work) {
+        return inTransaction(TransactionRetryPolicy.DEFAULT, work);
+    }
+
+    /**
+     * 在事务中执行操作，按默认重试策略重试。
+     */
+    public static <T> T inTransaction(@Nonnull String sessionFactoryName, @Nonnull Function<HibernateTransactionContext, T> work) {
+        return inTransaction(sessionFactoryName, TransactionRetryPolicy.DEFAULT, work);
+    }
+
+    /**
+     * 在事务中执行操作，按指定重试策略重试。
+     */
+    public static <T> T inTransaction(@Nonnull TransactionRetryPolicy retryPolicy, @Nonnull Function<HibernateTransactionContext, T> work) {
+        return getTransactionContext().execute(retryPolicy, work);
+    }
+
+    /**
+     * 在事务中执行操作，按指定重试策略重试。
+     */
+    public static <T> T inTransaction(@Nonnull String sessionFactoryName, @Nonnull TransactionRetryPolicy retryPolicy,
+        @Nonnull Function<HibernateTransactionContext, T> work) {
+        return getTransactionContext(sessionFactoryName).execute(retryPolicy, work);
+    }
+
     /**
      * 向数据库中存储一个对象。
      */
     @Nonnull
     public static <T> T merge(@Nonnull Session session, @Nonnull T object) {
-        return session.merge(object);
+        T result = session.merge(object);
+        invalidateEntity(session, Hibernate.getClass(object));
+        return result;
     }
 
     /**
@@ -136,6 +352,7 @@ public final class HibernateHelper {
      */
     public static void create(@Nonnull Session session, @Nonnull Object object) {
         session.persist(object);
+        invalidateEntity(session, Hibernate.getClass(object));
     }
 
     /**
@@ -164,6 +381,7 @@ public final class HibernateHelper {
      */
     public static void update(@Nonnull Session session, @Nonnull Object object) {
         session.merge(object);
+        invalidateEntity(session, Hibernate.getClass(object));
     }
 
     /**
@@ -196,6 +414,7 @@ public final class HibernateHelper {
         } else {
             session.persist(object);
         }
+        invalidateEntity(session, Hibernate.getClass(object));
     }
 
     /**
@@ -225,6 +444,7 @@ public final class HibernateHelper {
     public static void delete(@Nonnull Session session, @Nonnull Object object) {
         Object oldObject = session.merge(object);
         session.remove(oldObject);
+        invalidateEntity(session, Hibernate.getClass(object));
     }
 
     /**
@@ -254,6 +474,7 @@ public final class HibernateHelper {
     public static void delete(@Nonnull Session session, @Nonnull Class objectClass, @Nonnull Serializable primaryKey) {
         Object obj = session.getReference(objectClass, primaryKey);
         session.remove(obj);
+        invalidateEntity(session, objectClass);
     }
 
     /**
@@ -277,6 +498,270 @@ public final class HibernateHelper {
         delete(getTransactionContext(sessionFactoryName), objectClass, primaryKey);
     }
 
+    /**
+     * 获取 Hibernate 配置的 JDBC 批量大小，没有配置时返回 0。
+     */
+    static int getJdbcBatchSize(@Nonnull SessionFactory sessionFactory) {
+        return sessionFactory.unwrap(SessionFactoryImplementor.class).getSessionFactoryOptions().getJdbcBatchSize();
+    }
+
+    /**
+     * 使用 Hibernate 无状态会话执行批量操作，与 Hibernate 会话共用数据库连接和事务。
+     * 无状态会话不维护持久化上下文，Hibernate 会话中已加载的对象不会同步变化。
+     */
+    private static <T> long doStatelessWork(@Nonnull Session session, @Nonnull Iterable<T> objects, @Nonnull StatelessOperation operation) {
+        SessionFactory sessionFactory = session.getSessionFactory();
+        int configuredBatchSize = getJdbcBatchSize(sessionFactory);
+        int batchSize = configuredBatchSize > 0 ? configuredBatchSize : DEFAULT_BULK_BATCH_SIZE;
+        Set<Class<?>> entityClasses = new HashSet<>();
+        long result = doReturningWork(session, connection -> {
+            try (StatelessSession statelessSession = sessionFactory.openStatelessSession(connection)) {
+                statelessSession.setJdbcBatchSize(batchSize);
+                long count = 0;
+                for (T object : objects) {
+                    operation.execute(statelessSession, object);
+                    entityClasses.add(Hibernate.getClass(object));
+                    ++count;
+                }
+                // 使用外部数据库连接的无状态会话不会在关闭时执行最后一批语句
+                ((SharedSessionContractImplementor) statelessSession).getJdbcCoordinator().executeBatch();
+                return count;
+            }
+        });
+        for (Class<?> entityClass : entityClasses) {
+            invalidateEntity(session, entityClass);
+        }
+        return result;
+    }
+
+    /**
+     * 向数据库中批量存储对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkInsert(@Nonnull Session session, @Nonnull Iterable<?> objects) {
+        return doStatelessWork(session, objects, StatelessSession::insert);
+    }
+
+    /**
+     * 向数据库中批量存储对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkInsert(@Nonnull HibernateTransactionContext context, @Nonnull Iterable<?> objects) {
+        return bulkInsert(getSession(context), objects);
+    }
+
+    /**
+     * 向数据库中批量存储对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkInsert(@Nonnull Iterable<?> objects) {
+        return bulkInsert(getTransactionContext(), objects);
+    }
+
+    /**
+     * 向数据库中批量存储对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkInsert(@Nonnull String sessionFactoryName, @Nonnull Iterable<?> objects) {
+        return bulkInsert(getTransactionContext(sessionFactoryName), objects);
+    }
+
+    /**
+     * 向数据库中批量存储对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkInsert(@Nonnull Session session, @Nonnull Stream<T> objects) {
+        Iterable<T> iterable = objects::iterator;
+        return bulkInsert(session, iterable);
+    }
+
+    /**
+     * 向数据库中批量存储对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkInsert(@Nonnull HibernateTransactionContext context, @Nonnull Stream<T> objects) {
+        return bulkInsert(getSession(context), objects);
+    }
+
+    /**
+     * 向数据库中批量存储对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkInsert(@Nonnull Stream<T> objects) {
+        return bulkInsert(getTransactionContext(), objects);
+    }
+
+    /**
+     * 向数据库中批量存储对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkInsert(@Nonnull String sessionFactoryName, @Nonnull Stream<T> objects) {
+        return bulkInsert(getTransactionContext(sessionFactoryName), objects);
+    }
+
+    /**
+     * 向数据库中批量更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkUpdate(@Nonnull Session session, @Nonnull Iterable<?> objects) {
+        return doStatelessWork(session, objects, StatelessSession::update);
+    }
+
+    /**
+     * 向数据库中批量更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkUpdate(@Nonnull HibernateTransactionContext context, @Nonnull Iterable<?> objects) {
+        return bulkUpdate(getSession(context), objects);
+    }
+
+    /**
+     * 向数据库中批量更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkUpdate(@Nonnull Iterable<?> objects) {
+        return bulkUpdate(getTransactionContext(), objects);
+    }
+
+    /**
+     * 向数据库中批量更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkUpdate(@Nonnull String sessionFactoryName, @Nonnull Iterable<?> objects) {
+        return bulkUpdate(getTransactionContext(sessionFactoryName), objects);
+    }
+
+    /**
+     * 向数据库中批量更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkUpdate(@Nonnull Session session, @Nonnull Stream<T> objects) {
+        Iterable<T> iterable = objects::iterator;
+        return bulkUpdate(session, iterable);
+    }
+
+    /**
+     * 向数据库中批量更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkUpdate(@Nonnull HibernateTransactionContext context, @Nonnull Stream<T> objects) {
+        return bulkUpdate(getSession(context), objects);
+    }
+
+    /**
+     * 向数据库中批量更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkUpdate(@Nonnull Stream<T> objects) {
+        return bulkUpdate(getTransactionContext(), objects);
+    }
+
+    /**
+     * 向数据库中批量更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkUpdate(@Nonnull String sessionFactoryName, @Nonnull Stream<T> objects) {
+        return bulkUpdate(getTransactionContext(sessionFactoryName), objects);
+    }
+
+    /**
+     * 向数据库中批量存储或更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkUpsert(@Nonnull Session session, @Nonnull Iterable<?> objects) {
+        return doStatelessWork(session, objects, StatelessSession::upsert);
+    }
+
+    /**
+     * 向数据库中批量存储或更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkUpsert(@Nonnull HibernateTransactionContext context, @Nonnull Iterable<?> objects) {
+        return bulkUpsert(getSession(context), objects);
+    }
+
+    /**
+     * 向数据库中批量存储或更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkUpsert(@Nonnull Iterable<?> objects) {
+        return bulkUpsert(getTransactionContext(), objects);
+    }
+
+    /**
+     * 向数据库中批量存储或更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkUpsert(@Nonnull String sessionFactoryName, @Nonnull Iterable<?> objects) {
+        return bulkUpsert(getTransactionContext(sessionFactoryName), objects);
+    }
+
+    /**
+     * 向数据库中批量存储或更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkUpsert(@Nonnull Session session, @Nonnull Stream<T> objects) {
+        Iterable<T> iterable = objects::iterator;
+        return bulkUpsert(session, iterable);
+    }
+
+    /**
+     * 向数据库中批量存储或更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkUpsert(@Nonnull HibernateTransactionContext context, @Nonnull Stream<T> objects) {
+        return bulkUpsert(getSession(context), objects);
+    }
+
+    /**
+     * 向数据库中批量存储或更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkUpsert(@Nonnull Stream<T> objects) {
+        return bulkUpsert(getTransactionContext(), objects);
+    }
+
+    /**
+     * 向数据库中批量存储或更新对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkUpsert(@Nonnull String sessionFactoryName, @Nonnull Stream<T> objects) {
+        return bulkUpsert(getTransactionContext(sessionFactoryName), objects);
+    }
+
+    /**
+     * 从数据库中批量删除对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkDelete(@Nonnull Session session, @Nonnull Iterable<?> objects) {
+        return doStatelessWork(session, objects, StatelessSession::delete);
+    }
+
+    /**
+     * 从数据库中批量删除对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkDelete(@Nonnull HibernateTransactionContext context, @Nonnull Iterable<?> objects) {
+        return bulkDelete(getSession(context), objects);
+    }
+
+    /**
+     * 从数据库中批量删除对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkDelete(@Nonnull Iterable<?> objects) {
+        return bulkDelete(getTransactionContext(), objects);
+    }
+
+    /**
+     * 从数据库中批量删除对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static long bulkDelete(@Nonnull String sessionFactoryName, @Nonnull Iterable<?> objects) {
+        return bulkDelete(getTransactionContext(sessionFactoryName), objects);
+    }
+
+    /**
+     * 从数据库中批量删除对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkDelete(@Nonnull Session session, @Nonnull Stream<T> objects) {
+        Iterable<T> iterable = objects::iterator;
+        return bulkDelete(session, iterable);
+    }
+
+    /**
+     * 从数据库中批量删除对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkDelete(@Nonnull HibernateTransactionContext context, @Nonnull Stream<T> objects) {
+        return bulkDelete(getSession(context), objects);
+    }
+
+    /**
+     * 从数据库中批量删除对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkDelete(@Nonnull Stream<T> objects) {
+        return bulkDelete(getTransactionContext(), objects);
+    }
+
+    /**
+     * 从数据库中批量删除对象，使用 Hibernate 无状态会话，返回处理的对象数量。
+     */
+    public static <T> long bulkDelete(@Nonnull String sessionFactoryName, @Nonnull Stream<T> objects) {
+        return bulkDelete(getTransactionContext(sessionFactoryName), objects);
+    }
+
     /**
      * 根据类型和主键从数据库中获取一个对象，若没有则返回 null。
      */
@@ -392,8 +877,11 @@ public final class HibernateHelper {
      */
     public static int execute(@Nonnull Session session, @Nonnull String queryString, Object... params) {
         MutationQuery query = session.createMutationQuery(queryString);
+        getQueryOptions().applyTo(query);
         setQueryParameter(query, params);
-        return query.executeUpdate();
+        int result = query.executeUpdate();
+        invalidateStatement(session, queryString);
+        return result;
     }
 
     /**
@@ -420,30 +908,33 @@ public final class HibernateHelper {
     /**
      * 执行 HQL 语句。
      */
-    public static int execute(@Nonnull Session session, @Nonnull String queryString, @Nonnull Iterable params) {
+    public static int execute(@Nonnull Session session, @Nonnull String queryString, @Nonnull Iterable<?> params) {
         MutationQuery query = session.createMutationQuery(queryString);
+        getQueryOptions().applyTo(query);
         setQueryParameter(query, params);
-        return query.executeUpdate();
+        int result = query.executeUpdate();
+        invalidateStatement(session, queryString);
+        return result;
     }
 
     /**
      * 执行 HQL 语句。
      */
-    public static int execute(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, @Nonnull Iterable params) {
+    public static int execute(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, @Nonnull Iterable<?> params) {
         return execute(getSession(context), queryString, params);
     }
 
     /**
      * 执行 HQL 语句。
      */
-    public static int execute(@Nonnull String queryString, @Nonnull Iterable params) {
+    public static int execute(@Nonnull String queryString, @Nonnull Iterable<?> params) {
         return execute(getTransactionContext(), queryString, params);
     }
 
     /**
      * 执行 HQL 语句。
      */
-    public static int execute(@Nonnull String sessionFactoryName, @Nonnull String queryString, @Nonnull Iterable params) {
+    public static int execute(@Nonnull String sessionFactoryName, @Nonnull String queryString, @Nonnull Iterable<?> params) {
         return execute(getTransactionContext(sessionFactoryName), queryString, params);
     }
 
@@ -452,8 +943,11 @@ public final class HibernateHelper {
      */
     public static int execute(@Nonnull Session session, @Nonnull String queryString, @Nonnull Map<String, ?> params) {
         MutationQuery query = session.createMutationQuery(queryString);
+        getQueryOptions().applyTo(query);
         setQueryParameter(query, params);
-        return query.executeUpdate();
+        int result = query.executeUpdate();
+        invalidateStatement(session, queryString);
+        return result;
     }
 
     /**
@@ -478,64 +972,116 @@ public final class HibernateHelper {
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
+     * 使用多组参数执行同一条 HQL 语句，返回每组参数影响的行数。
+     * 只创建一次查询对象，每组参数重新绑定后执行。
      */
     @Nonnull
-    public static List queryAll(@Nonnull Session session, @Nonnull String queryString, Object... params) {
+    public static int[] executeBatch(@Nonnull Session session, @Nonnull String queryString, @Nonnull Iterable<Object[]> paramsList) {
+        MutationQuery query = session.createMutationQuery(queryString);
+        getQueryOptions().applyTo(query);
+        List<Integer> counts = new ArrayList<>();
         try {
-            Query query = session.createQuery(queryString, Object.class);
-            setQueryParameter(query, params);
-            return query.list();
-        } catch (ObjectNotFoundException e) {
-            LOG.trace("", e);
-            return new ArrayList();
+            for (Object[] params : paramsList) {
+                setQueryParameter(query, params);
+                counts.add(query.executeUpdate());
+            }
+        } finally {
+            if (!counts.isEmpty()) {
+                invalidateStatement(session, queryString);
+            }
         }
+        return counts.stream().mapToInt(Integer::intValue).toArray();
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
+     * 使用多组参数执行同一条 HQL 语句，返回每组参数影响的行数。
      */
     @Nonnull
-    public static List queryAll(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, Object... params) {
-        return queryAll(getSession(context), queryString, params);
+    public static int[] executeBatch(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, @Nonnull Iterable<Object[]> paramsList) {
+        return executeBatch(getSession(context), queryString, paramsList);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
+     * 使用多组参数执行同一条 HQL 语句，返回每组参数影响的行数。
      */
     @Nonnull
-    public static List queryAll(@Nonnull String queryString, Object... params) {
-        return queryAll(getTransactionContext(), queryString, params);
+    public static int[] executeBatch(@Nonnull String queryString, @Nonnull Iterable<Object[]> paramsList) {
+        return executeBatch(getTransactionContext(), queryString, paramsList);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
+     * 使用多组参数执行同一条 HQL 语句，返回每组参数影响的行数。
      */
     @Nonnull
-    public static List queryAll(@Nonnull String sessionFactoryName, @Nonnull String queryString, Object... params) {
-        return queryAll(getTransactionContext(sessionFactoryName), queryString, params);
+    public static int[] executeBatch(@Nonnull String sessionFactoryName, @Nonnull String queryString, @Nonnull Iterable<Object[]> paramsList) {
+        return executeBatch(getTransactionContext(sessionFactoryName), queryString, paramsList);
     }
 
     /**
      * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
      */
     @Nonnull
-    public static List queryAll(@Nonnull Session session, @Nonnull String queryString, @Nonnull Iterable params) {
-        try {
-            Query query = session.createQuery(queryString, Object.class);
-            setQueryParameter(query, params);
-            return query.list();
-        } catch (ObjectNotFoundException e) {
-            LOG.trace("", e);
-            return new ArrayList();
-        }
+    public static List queryAll(@Nonnull Session session, @Nonnull String queryString, Object... params) {
+        return cachedSelection(session, "queryAll", queryString, params, () -> {
+            try {
+                Query query = session.createQuery(queryString, Object.class);
+                getQueryOptions().applyTo(query);
+                setQueryParameter(query, params);
+                return query.list();
+            } catch (ObjectNotFoundException e) {
+                LOG.trace("", e);
+                return new ArrayList();
+            }
+        });
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
+     */
+    @Nonnull
+    public static List queryAll(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, Object... params) {
+        return queryAll(getSession(context), queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
+     */
+    @Nonnull
+    public static List queryAll(@Nonnull String queryString, Object... params) {
+        return queryAll(getTransactionContext(), queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
+     */
+    @Nonnull
+    public static List queryAll(@Nonnull String sessionFactoryName, @Nonnull String queryString, Object... params) {
+        return queryAll(getTransactionContext(sessionFactoryName), queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
+     */
+    @Nonnull
+    public static List queryAll(@Nonnull Session session, @Nonnull String queryString, @Nonnull Iterable<?> params) {
+        return cachedSelection(session, "queryAll", queryString, params, () -> {
+            try {
+                Query query = session.createQuery(queryString, Object.class);
+                getQueryOptions().applyTo(query);
+                setQueryParameter(query, params);
+                return query.list();
+            } catch (ObjectNotFoundException e) {
+                LOG.trace("", e);
+                return new ArrayList();
+            }
+        });
     }
 
     /**
      * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
      */
     @Nonnull
-    public static List queryAll(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, @Nonnull Iterable params) {
+    public static List queryAll(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, @Nonnull Iterable<?> params) {
         return queryAll(getSession(context), queryString, params);
     }
 
@@ -543,7 +1089,7 @@ public final class HibernateHelper {
      * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
      */
     @Nonnull
-    public static List queryAll(@Nonnull String queryString, @Nonnull Iterable params) {
+    public static List queryAll(@Nonnull String queryString, @Nonnull Iterable<?> params) {
         return queryAll(getTransactionContext(), queryString, params);
     }
 
@@ -551,7 +1097,7 @@ public final class HibernateHelper {
      * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
      */
     @Nonnull
-    public static List queryAll(@Nonnull String sessionFactoryName, @Nonnull String queryString, @Nonnull Iterable params) {
+    public static List queryAll(@Nonnull String sessionFactoryName, @Nonnull String queryString, @Nonnull Iterable<?> params) {
         return queryAll(getTransactionContext(sessionFactoryName), queryString, params);
     }
 
@@ -560,14 +1106,17 @@ public final class HibernateHelper {
      */
     @Nonnull
     public static List queryAll(@Nonnull Session session, @Nonnull String queryString, @Nonnull Map<String, ?> params) {
-        try {
-            Query query = session.createQuery(queryString, Object.class);
-            setQueryParameter(query, params);
-            return query.list();
-        } catch (ObjectNotFoundException e) {
-            LOG.trace("", e);
-            return new ArrayList();
-        }
+        return cachedSelection(session, "queryAll", queryString, params, () -> {
+            try {
+                Query query = session.createQuery(queryString, Object.class);
+                getQueryOptions().applyTo(query);
+                setQueryParameter(query, params);
+                return query.list();
+            } catch (ObjectNotFoundException e) {
+                LOG.trace("", e);
+                return new ArrayList();
+            }
+        });
     }
 
     /**
@@ -594,6 +1143,140 @@ public final class HibernateHelper {
         return queryAll(getTransactionContext(sessionFactoryName), queryString, params);
     }
 
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表。
+     * 结果类型可以是实体、元组、标量或记录类，记录类按查询结果的列顺序构造；
+     * 长整数、整数和浮点数结果使用基本类型数组保存；返回的列表总是只读的。
+     */
+    @Nonnull
+    public static <R> List<R> queryAll(@Nonnull Session session, @Nonnull Class<R> resultType, @Nonnull String queryString, Object... params) {
+        TypedResultMapping<R> mapping = TypedResultMapping.of(resultType);
+        return cachedSelection(session, "queryAll:" + resultType.getName(), queryString, params, () -> {
+            try {
+                Query query = session.createQuery(queryString, mapping.getQueryType());
+                getQueryOptions().applyTo(query);
+                setQueryParameter(query, params);
+                return mapping.map(query.list());
+            } catch (ObjectNotFoundException e) {
+                LOG.trace("", e);
+                return List.of();
+            }
+        });
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表。
+     */
+    @Nonnull
+    public static <R> List<R> queryAll(@Nonnull HibernateTransactionContext context, @Nonnull Class<R> resultType, @Nonnull String queryString, Object... params) {
+        return queryAll(getSession(context), resultType, queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表。
+     */
+    @Nonnull
+    public static <R> List<R> queryAll(@Nonnull Class<R> resultType, @Nonnull String queryString, Object... params) {
+        return queryAll(getTransactionContext(), resultType, queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表。
+     */
+    @Nonnull
+    public static <R> List<R> queryAll(@Nonnull String sessionFactoryName, @Nonnull Class<R> resultType, @Nonnull String queryString, Object... params) {
+        return queryAll(getTransactionContext(sessionFactoryName), resultType, queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表。
+     */
+    @Nonnull
+    public static <R> List<R> queryAll(@Nonnull Session session, @Nonnull Class<R> resultType, @Nonnull String queryString, @Nonnull Iterable<?> params) {
+        TypedResultMapping<R> mapping = TypedResultMapping.of(resultType);
+        return cachedSelection(session, "queryAll:" + resultType.getName(), queryString, params, () -> {
+            try {
+                Query query = session.createQuery(queryString, mapping.getQueryType());
+                getQueryOptions().applyTo(query);
+                setQueryParameter(query, params);
+                return mapping.map(query.list());
+            } catch (ObjectNotFoundException e) {
+                LOG.trace("", e);
+                return List.of();
+            }
+        });
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表。
+     */
+    @Nonnull
+    public static <R> List<R> queryAll(@Nonnull HibernateTransactionContext context, @Nonnull Class<R> resultType, @Nonnull String queryString,
+        @Nonnull Iterable<?> params) {
+        return queryAll(getSession(context), resultType, queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表。
+     */
+    @Nonnull
+    public static <R> List<R> queryAll(@Nonnull Class<R> resultType, @Nonnull String queryString, @Nonnull Iterable<?> params) {
+        return queryAll(getTransactionContext(), resultType, queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表。
+     */
+    @Nonnull
+    public static <R> List<R> queryAll(@Nonnull String sessionFactoryName, @Nonnull Class<R> resultType, @Nonnull String queryString, @Nonnull Iterable<?> params) {
+        return queryAll(getTransactionContext(sessionFactoryName), resultType, queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表。
+     */
+    @Nonnull
+    public static <R> List<R> queryAll(@Nonnull Session session, @Nonnull Class<R> resultType, @Nonnull String queryString, @Nonnull Map<String, ?> params) {
+        TypedResultMapping<R> mapping = TypedResultMapping.of(resultType);
+        return cachedSelection(session, "queryAll:" + resultType.getName(), queryString, params, () -> {
+            try {
+                Query query = session.createQuery(queryString, mapping.getQueryType());
+                getQueryOptions().applyTo(query);
+                setQueryParameter(query, params);
+                return mapping.map(query.list());
+            } catch (ObjectNotFoundException e) {
+                LOG.trace("", e);
+                return List.of();
+            }
+        });
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表。
+     */
+    @Nonnull
+    public static <R> List<R> queryAll(@Nonnull HibernateTransactionContext context, @Nonnull Class<R> resultType, @Nonnull String queryString,
+        @Nonnull Map<String, ?> params) {
+        return queryAll(getSession(context), resultType, queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表。
+     */
+    @Nonnull
+    public static <R> List<R> queryAll(@Nonnull Class<R> resultType, @Nonnull String queryString, @Nonnull Map<String, ?> params) {
+        return queryAll(getTransactionContext(), resultType, queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表。
+     */
+    @Nonnull
+    public static <R> List<R> queryAll(@Nonnull String sessionFactoryName, @Nonnull Class<R> resultType, @Nonnull String queryString,
+        @Nonnull Map<String, ?> params) {
+        return queryAll(getTransactionContext(sessionFactoryName), resultType, queryString, params);
+    }
+
     /**
      * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
      */
@@ -601,6 +1284,7 @@ public final class HibernateHelper {
     public static List<Map<String, Object>> queryAllAsMap(@Nonnull Session session, @Nonnull String queryString, Object... params) {
         try {
             Query query = session.createQuery(queryString, Map.class);
+            getQueryOptions().applyTo(query);
             setQueryParameter(query, params);
             return query.list();
         } catch (ObjectNotFoundException e) {
@@ -637,9 +1321,10 @@ public final class HibernateHelper {
      * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryAllAsMap(@Nonnull Session session, @Nonnull String queryString, @Nonnull Iterable params) {
+    public static List<Map<String, Object>> queryAllAsMap(@Nonnull Session session, @Nonnull String queryString, @Nonnull Iterable<?> params) {
         try {
             Query query = session.createQuery(queryString, Map.class);
+            getQueryOptions().applyTo(query);
             setQueryParameter(query, params);
             return query.list();
         } catch (ObjectNotFoundException e) {
@@ -652,7 +1337,7 @@ public final class HibernateHelper {
      * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryAllAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, @Nonnull Iterable params) {
+    public static List<Map<String, Object>> queryAllAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, @Nonnull Iterable<?> params) {
         return queryAllAsMap(getSession(context), queryString, params);
     }
 
@@ -660,7 +1345,7 @@ public final class HibernateHelper {
      * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryAllAsMap(@Nonnull String queryString, @Nonnull Iterable params) {
+    public static List<Map<String, Object>> queryAllAsMap(@Nonnull String queryString, @Nonnull Iterable<?> params) {
         return queryAllAsMap(getTransactionContext(), queryString, params);
     }
 
@@ -668,7 +1353,7 @@ public final class HibernateHelper {
      * 根据 HQL 查询字符串和参数从数据库中获取对象列表。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryAllAsMap(@Nonnull String sessionFactoryName, @Nonnull String queryString, @Nonnull Iterable params) {
+    public static List<Map<String, Object>> queryAllAsMap(@Nonnull String sessionFactoryName, @Nonnull String queryString, @Nonnull Iterable<?> params) {
         return queryAllAsMap(getTransactionContext(sessionFactoryName), queryString, params);
     }
 
@@ -679,6 +1364,7 @@ public final class HibernateHelper {
     public static List<Map<String, Object>> queryAllAsMap(@Nonnull Session session, @Nonnull String queryString, @Nonnull Map<String, ?> params) {
         try {
             Query query = session.createQuery(queryString, Map.class);
+            getQueryOptions().applyTo(query);
             setQueryParameter(query, params);
             return query.list();
         } catch (ObjectNotFoundException e) {
@@ -719,6 +1405,7 @@ public final class HibernateHelper {
     public static List queryPage(@Nonnull Session session, @Nonnull String queryString, int startNum, int maxResults, Object... params) {
         try {
             Query query = session.createQuery(queryString, Object.class);
+            getQueryOptions().applyTo(query);
             setQueryParameter(query, params);
             query.setFirstResult(startNum);
             query.setMaxResults(maxResults);
@@ -757,9 +1444,10 @@ public final class HibernateHelper {
      * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List queryPage(@Nonnull Session session, @Nonnull String queryString, int startNum, int maxResults, @Nonnull Iterable params) {
+    public static List queryPage(@Nonnull Session session, @Nonnull String queryString, int startNum, int maxResults, @Nonnull Iterable<?> params) {
         try {
             Query query = session.createQuery(queryString, Object.class);
+            getQueryOptions().applyTo(query);
             setQueryParameter(query, params);
             query.setFirstResult(startNum);
             query.setMaxResults(maxResults);
@@ -775,7 +1463,7 @@ public final class HibernateHelper {
      */
     @Nonnull
     public static List queryPage(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, int startNum, int maxResults,
-        @Nonnull Iterable params) {
+        @Nonnull Iterable<?> params) {
         return queryPage(getSession(context), queryString, startNum, maxResults, params);
     }
 
@@ -783,7 +1471,7 @@ public final class HibernateHelper {
      * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List queryPage(@Nonnull String queryString, int startNum, int maxResults, @Nonnull Iterable params) {
+    public static List queryPage(@Nonnull String queryString, int startNum, int maxResults, @Nonnull Iterable<?> params) {
         return queryPage(getTransactionContext(), queryString, startNum, maxResults, params);
     }
 
@@ -791,7 +1479,7 @@ public final class HibernateHelper {
      * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List queryPage(@Nonnull String sessionFactoryName, @Nonnull String queryString, int startNum, int maxResults, @Nonnull Iterable params) {
+    public static List queryPage(@Nonnull String sessionFactoryName, @Nonnull String queryString, int startNum, int maxResults, @Nonnull Iterable<?> params) {
         return queryPage(getTransactionContext(sessionFactoryName), queryString, startNum, maxResults, params);
     }
 
@@ -802,6 +1490,7 @@ public final class HibernateHelper {
     public static List queryPage(@Nonnull Session session, @Nonnull String queryString, int startNum, int maxResults, @Nonnull Map<String, ?> params) {
         try {
             Query query = session.createQuery(queryString, Object.class);
+            getQueryOptions().applyTo(query);
             setQueryParameter(query, params);
             query.setFirstResult(startNum);
             query.setMaxResults(maxResults);
@@ -839,346 +1528,1157 @@ public final class HibernateHelper {
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表，限定起始结果和行数。
+     * 结果类型的转换同 {@link #queryAll(Session, Class, String, Object...)}。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryPageAsMap(@Nonnull Session session, @Nonnull String queryString, int startNum, int maxResults,
-        Object... params) {
+    public static <R> List<R> queryPage(@Nonnull Session session, @Nonnull Class<R> resultType, @Nonnull String queryString, int startNum,
+        int maxResults, Object... params) {
+        TypedResultMapping<R> mapping = TypedResultMapping.of(resultType);
         try {
-            Query query = session.createQuery(queryString, Map.class);
+            Query query = session.createQuery(queryString, mapping.getQueryType());
+            getQueryOptions().applyTo(query);
             setQueryParameter(query, params);
             query.setFirstResult(startNum);
             query.setMaxResults(maxResults);
-            return query.list();
+            return mapping.map(query.list());
         } catch (ObjectNotFoundException e) {
             LOG.trace("", e);
-            return new ArrayList();
+            return List.of();
         }
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryPageAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, int startNum,
+    public static <R> List<R> queryPage(@Nonnull HibernateTransactionContext context, @Nonnull Class<R> resultType, @Nonnull String queryString, int startNum,
         int maxResults, Object... params) {
-        return queryPageAsMap(getSession(context), queryString, startNum, maxResults, params);
+        return queryPage(getSession(context), resultType, queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryPageAsMap(@Nonnull String queryString, int startNum, int maxResults, Object... params) {
-        return queryPageAsMap(getTransactionContext(), queryString, startNum, maxResults, params);
+    public static <R> List<R> queryPage(@Nonnull Class<R> resultType, @Nonnull String queryString, int startNum, int maxResults, Object... params) {
+        return queryPage(getTransactionContext(), resultType, queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryPageAsMap(@Nonnull String sessionFactoryName, @Nonnull String queryString, int startNum, int maxResults,
-        Object... params) {
-        return queryPageAsMap(getTransactionContext(sessionFactoryName), queryString, startNum, maxResults, params);
+    public static <R> List<R> queryPage(@Nonnull String sessionFactoryName, @Nonnull Class<R> resultType, @Nonnull String queryString, int startNum,
+        int maxResults, Object... params) {
+        return queryPage(getTransactionContext(sessionFactoryName), resultType, queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryPageAsMap(@Nonnull Session session, @Nonnull String queryString, int startNum, int maxResults,
-        @Nonnull Iterable params) {
+    public static <R> List<R> queryPage(@Nonnull Session session, @Nonnull Class<R> resultType, @Nonnull String queryString, int startNum,
+        int maxResults, @Nonnull Iterable<?> params) {
+        TypedResultMapping<R> mapping = TypedResultMapping.of(resultType);
         try {
-            Query query = session.createQuery(queryString, Map.class);
+            Query query = session.createQuery(queryString, mapping.getQueryType());
+            getQueryOptions().applyTo(query);
             setQueryParameter(query, params);
             query.setFirstResult(startNum);
             query.setMaxResults(maxResults);
-            return query.list();
+            return mapping.map(query.list());
         } catch (ObjectNotFoundException e) {
             LOG.trace("", e);
-            return new ArrayList();
+            return List.of();
         }
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryPageAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, int startNum,
-        int maxResults, @Nonnull Iterable params) {
-        return queryPageAsMap(getSession(context), queryString, startNum, maxResults, params);
+    public static <R> List<R> queryPage(@Nonnull HibernateTransactionContext context, @Nonnull Class<R> resultType, @Nonnull String queryString, int startNum,
+        int maxResults, @Nonnull Iterable<?> params) {
+        return queryPage(getSession(context), resultType, queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryPageAsMap(@Nonnull String queryString, int startNum, int maxResults, @Nonnull Iterable params) {
-        return queryPageAsMap(getTransactionContext(), queryString, startNum, maxResults, params);
+    public static <R> List<R> queryPage(@Nonnull Class<R> resultType, @Nonnull String queryString, int startNum, int maxResults, @Nonnull Iterable<?> params) {
+        return queryPage(getTransactionContext(), resultType, queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryPageAsMap(@Nonnull String sessionFactoryName, @Nonnull String queryString, int startNum, int maxResults,
-        @Nonnull Iterable params) {
-        return queryPageAsMap(getTransactionContext(sessionFactoryName), queryString, startNum, maxResults, params);
+    public static <R> List<R> queryPage(@Nonnull String sessionFactoryName, @Nonnull Class<R> resultType, @Nonnull String queryString, int startNum,
+        int maxResults, @Nonnull Iterable<?> params) {
+        return queryPage(getTransactionContext(sessionFactoryName), resultType, queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryPageAsMap(@Nonnull Session session, @Nonnull String queryString, int startNum, int maxResults,
-        @Nonnull Map<String, ?> params) {
+    public static <R> List<R> queryPage(@Nonnull Session session, @Nonnull Class<R> resultType, @Nonnull String queryString, int startNum,
+        int maxResults, @Nonnull Map<String, ?> params) {
+        TypedResultMapping<R> mapping = TypedResultMapping.of(resultType);
         try {
-            Query query = session.createQuery(queryString, Map.class);
+            Query query = session.createQuery(queryString, mapping.getQueryType());
+            getQueryOptions().applyTo(query);
             setQueryParameter(query, params);
             query.setFirstResult(startNum);
             query.setMaxResults(maxResults);
-            return query.list();
+            return mapping.map(query.list());
         } catch (ObjectNotFoundException e) {
             LOG.trace("", e);
-            return new ArrayList();
+            return List.of();
         }
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryPageAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, int startNum,
+    public static <R> List<R> queryPage(@Nonnull HibernateTransactionContext context, @Nonnull Class<R> resultType, @Nonnull String queryString, int startNum,
         int maxResults, @Nonnull Map<String, ?> params) {
-        return queryPageAsMap(getSession(context), queryString, startNum, maxResults, params);
+        return queryPage(getSession(context), resultType, queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryPageAsMap(@Nonnull String queryString, int startNum, int maxResults, @Nonnull Map<String, ?> params) {
-        return queryPageAsMap(getTransactionContext(), queryString, startNum, maxResults, params);
+    public static <R> List<R> queryPage(@Nonnull Class<R> resultType, @Nonnull String queryString, int startNum, int maxResults, @Nonnull Map<String, ?> params) {
+        return queryPage(getTransactionContext(), resultType, queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     * 根据 HQL 查询字符串和参数从数据库中获取指定类型的对象列表，限定起始结果和行数。
      */
     @Nonnull
-    public static List<Map<String, Object>> queryPageAsMap(@Nonnull String sessionFactoryName, @Nonnull String queryString, int startNum, int maxResults,
-        @Nonnull Map<String, ?> params) {
-        return queryPageAsMap(getTransactionContext(sessionFactoryName), queryString, startNum, maxResults, params);
+    public static <R> List<R> queryPage(@Nonnull String sessionFactoryName, @Nonnull Class<R> resultType, @Nonnull String queryString, int startNum,
+        int maxResults, @Nonnull Map<String, ?> params) {
+        return queryPage(getTransactionContext(sessionFactoryName), resultType, queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表和总行数，限定起始结果和行数。
+     * 总行数使用从查询 HQL 生成的统计 HQL 获取，参见 {@link HQLmx#toCountQuery(String)}；
+     * 当前页不满且能确定总行数时不执行统计查询。
      */
-    public static long queryCount(@Nonnull Session session, @Nonnull String queryString, Object... params) {
-        try {
-            Query query = session.createQuery(queryString, Long.class);
-            setQueryParameter(query, params);
-            Object r = query.uniqueResult();
-            if (r == null) {
-                return 0;
-            }
-            return ((Number) r).longValue();
-        } catch (ObjectNotFoundException e) {
-            LOG.trace("", e);
-            return 0;
-        }
+    @Nonnull
+    public static PageResult<Object> queryPageWithTotal(@Nonnull Session session, @Nonnull String queryString, int startNum, int maxResults, Object... params) {
+        List<?> content = queryPage(session, queryString, startNum, maxResults, params);
+        return new PageResult<>(content, getTotal(content, startNum, maxResults, () -> queryCount(session, HQLmx.toCountQuery(queryString), params)));
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表和总行数，限定起始结果和行数。
      */
-    public static long queryCount(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, Object... params) {
-        return queryCount(getSession(context), queryString, params);
+    @Nonnull
+    public static PageResult<Object> queryPageWithTotal(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, int startNum, int maxResults,
+        Object... params) {
+        return queryPageWithTotal(getSession(context), queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表和总行数，限定起始结果和行数。
      */
-    public static long queryCount(@Nonnull String queryString, Object... params) {
-        return queryCount(getTransactionContext(), queryString, params);
+    @Nonnull
+    public static PageResult<Object> queryPageWithTotal(@Nonnull String queryString, int startNum, int maxResults, Object... params) {
+        return queryPageWithTotal(getTransactionContext(), queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表和总行数，限定起始结果和行数。
      */
-    public static long queryCount(@Nonnull String sessionFactoryName, @Nonnull String queryString, Object... params) {
-        return queryCount(getTransactionContext(sessionFactoryName), queryString, params);
+    @Nonnull
+    public static PageResult<Object> queryPageWithTotal(@Nonnull String sessionFactoryName, @Nonnull String queryString, int startNum, int maxResults, Object... params) {
+        return queryPageWithTotal(getTransactionContext(sessionFactoryName), queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表和总行数，限定起始结果和行数。
      */
-    public static long queryCount(@Nonnull Session session, @Nonnull String queryString, @Nonnull Iterable params) {
-        Query query = session.createQuery(queryString, Long.class);
-        setQueryParameter(query, params);
-        Object r = query.uniqueResult();
-        if (r == null) {
-            return 0;
-        }
-        return ((Number) r).longValue();
+    @Nonnull
+    public static PageResult<Object> queryPageWithTotal(@Nonnull Session session, @Nonnull String queryString, int startNum, int maxResults, @Nonnull Iterable<?> params) {
+        List<?> content = queryPage(session, queryString, startNum, maxResults, params);
+        return new PageResult<>(content, getTotal(content, startNum, maxResults, () -> queryCount(session, HQLmx.toCountQuery(queryString), params)));
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表和总行数，限定起始结果和行数。
      */
-    public static long queryCount(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, @Nonnull Iterable params) {
-        return queryCount(getSession(context), queryString, params);
+    @Nonnull
+    public static PageResult<Object> queryPageWithTotal(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, int startNum, int maxResults,
+        @Nonnull Iterable<?> params) {
+        return queryPageWithTotal(getSession(context), queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表和总行数，限定起始结果和行数。
      */
-    public static long queryCount(@Nonnull String queryString, @Nonnull Iterable params) {
-        return queryCount(getTransactionContext(), queryString, params);
+    @Nonnull
+    public static PageResult<Object> queryPageWithTotal(@Nonnull String queryString, int startNum, int maxResults, @Nonnull Iterable<?> params) {
+        return queryPageWithTotal(getTransactionContext(), queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表和总行数，限定起始结果和行数。
      */
-    public static long queryCount(@Nonnull String sessionFactoryName, @Nonnull String queryString, @Nonnull Iterable params) {
-        return queryCount(getTransactionContext(sessionFactoryName), queryString, params);
+    @Nonnull
+    public static PageResult<Object> queryPageWithTotal(@Nonnull String sessionFactoryName, @Nonnull String queryString, int startNum, int maxResults,
+        @Nonnull Iterable<?> params) {
+        return queryPageWithTotal(getTransactionContext(sessionFactoryName), queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表和总行数，限定起始结果和行数。
      */
-    public static long queryCount(@Nonnull Session session, @Nonnull String queryString, @Nonnull Map<String, ?> params) {
-        Query query = session.createQuery(queryString, Long.class);
-        setQueryParameter(query, params);
-        Object r = query.uniqueResult();
-        if (r == null) {
-            return 0;
-        }
-        return ((Number) r).longValue();
+    @Nonnull
+    public static PageResult<Object> queryPageWithTotal(@Nonnull Session session, @Nonnull String queryString, int startNum, int maxResults,
+        @Nonnull Map<String, ?> params) {
+        List<?> content = queryPage(session, queryString, startNum, maxResults, params);
+        return new PageResult<>(content, getTotal(content, startNum, maxResults, () -> queryCount(session, HQLmx.toCountQuery(queryString), params)));
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表和总行数，限定起始结果和行数。
      */
-    public static long queryCount(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, @Nonnull Map<String, ?> params) {
-        return queryCount(getSession(context), queryString, params);
+    @Nonnull
+    public static PageResult<Object> queryPageWithTotal(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, int startNum, int maxResults,
+        @Nonnull Map<String, ?> params) {
+        return queryPageWithTotal(getSession(context), queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表和总行数，限定起始结果和行数。
      */
-    public static long queryCount(@Nonnull String queryString, @Nonnull Map<String, ?> params) {
-        return queryCount(getTransactionContext(), queryString, params);
+    @Nonnull
+    public static PageResult<Object> queryPageWithTotal(@Nonnull String queryString, int startNum, int maxResults, @Nonnull Map<String, ?> params) {
+        return queryPageWithTotal(getTransactionContext(), queryString, startNum, maxResults, params);
     }
 
     /**
-     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表和总行数，限定起始结果和行数。
      */
-    public static long queryCount(@Nonnull String sessionFactoryName, @Nonnull String queryString, @Nonnull Map<String, ?> params) {
-        return queryCount(getTransactionContext(sessionFactoryName), queryString, params);
+    @Nonnull
+    public static PageResult<Object> queryPageWithTotal(@Nonnull String sessionFactoryName, @Nonnull String queryString, int startNum, int maxResults,
+        @Nonnull Map<String, ?> params) {
+        return queryPageWithTotal(getTransactionContext(sessionFactoryName), queryString, startNum, maxResults, params);
     }
 
-    public static <T> T doReturningWork(@Nonnull Session session, @Nonnull ReturningWork<T> work) {
-        return session.doReturningWork(work);
+    /**
+     * 计算总行数，当前页不满且不是越过末尾的空页时由当前页推算，否则执行统计查询。
+     */
+    private static long getTotal(List<?> content, int startNum, int maxResults, LongSupplier counter) {
+        int size = content.size();
+        if (size < maxResults && (size > 0 || startNum == 0)) {
+            return (long) startNum + size;
+        }
+        return counter.getAsLong();
     }
 
-    public static int updateSQL(@Nonnull Session session, @Nonnull String sql, Object... params) {
-        return doReturningWork(session, connection -> {
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                if (params != null) {
-                    for (int i = 0; i < params.length; ++i) {
-                        stmt.setObject(i + 1, params[i]);
-                    }
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，使用键集分页，返回游标之后的若干行。
+     * HQL 中不能有 order by 子句，查询结果按键排序，键的组合必须唯一。游标为 null 时返回第一页。
+     */
+    @Nonnull
+    public static List queryKeysetPage(@Nonnull Session session, @Nonnull String queryString, @Nonnull List<String> keyPaths, boolean ascending,
+        @Nullable KeysetCursor cursor, int maxResults, Object... params) {
+        int paramCount = params == null ? 0 : params.length;
+        String keysetQueryString = HQLmx.toKeysetQuery(queryString, keyPaths, ascending, paramCount, cursor != null);
+        try {
+            Query query = session.createQuery(keysetQueryString, Object.class);
+            getQueryOptions().applyTo(query);
+            setQueryParameter(query, params);
+            if (cursor != null) {
+                Object[] keyValues = cursor.getValues(keyPaths);
+                for (int i = 0; i < keyValues.length; ++i) {
+                    query.setParameter(HQLmx.getParameterName(paramCount + i), keyValues[i]);
                 }
-                return stmt.executeUpdate();
             }
-        });
-    }
-
-    public static int updateSQL(@Nonnull HibernateTransactionContext context, @Nonnull String sql, Object... params) {
-        return updateSQL(getSession(context), sql, params);
+            query.setMaxResults(maxResults);
+            return query.list();
+        } catch (ObjectNotFoundException e) {
+            LOG.trace("", e);
+            return new ArrayList();
+        }
     }
 
-    public static int updateSQL(@Nonnull String sql, Object... params) {
-        return updateSQL(getTransactionContext(), sql, params);
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，使用键集分页，返回游标之后的若干行。
+     */
+    @Nonnull
+    public static List queryKeysetPage(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, @Nonnull List<String> keyPaths,
+        boolean ascending, @Nullable KeysetCursor cursor, int maxResults, Object... params) {
+        return queryKeysetPage(getSession(context), queryString, keyPaths, ascending, cursor, maxResults, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，使用键集分页，返回游标之后的若干行。
+     */
+    @Nonnull
+    public static List queryKeysetPage(@Nonnull String queryString, @Nonnull List<String> keyPaths, boolean ascending, @Nullable KeysetCursor cursor,
+        int maxResults, Object... params) {
+        return queryKeysetPage(getTransactionContext(), queryString, keyPaths, ascending, cursor, maxResults, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，使用键集分页，返回游标之后的若干行。
+     */
+    @Nonnull
+    public static List queryKeysetPage(@Nonnull String sessionFactoryName, @Nonnull String queryString, @Nonnull List<String> keyPaths, boolean ascending,
+        @Nullable KeysetCursor cursor, int maxResults, Object... params) {
+        return queryKeysetPage(getTransactionContext(sessionFactoryName), queryString, keyPaths, ascending, cursor, maxResults, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> queryPageAsMap(@Nonnull Session session, @Nonnull String queryString, int startNum, int maxResults,
+        Object... params) {
+        try {
+            Query query = session.createQuery(queryString, Map.class);
+            getQueryOptions().applyTo(query);
+            setQueryParameter(query, params);
+            query.setFirstResult(startNum);
+            query.setMaxResults(maxResults);
+            return query.list();
+        } catch (ObjectNotFoundException e) {
+            LOG.trace("", e);
+            return new ArrayList();
+        }
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> queryPageAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, int startNum,
+        int maxResults, Object... params) {
+        return queryPageAsMap(getSession(context), queryString, startNum, maxResults, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> queryPageAsMap(@Nonnull String queryString, int startNum, int maxResults, Object... params) {
+        return queryPageAsMap(getTransactionContext(), queryString, startNum, maxResults, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> queryPageAsMap(@Nonnull String sessionFactoryName, @Nonnull String queryString, int startNum, int maxResults,
+        Object... params) {
+        return queryPageAsMap(getTransactionContext(sessionFactoryName), queryString, startNum, maxResults, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> queryPageAsMap(@Nonnull Session session, @Nonnull String queryString, int startNum, int maxResults,
+        @Nonnull Iterable<?> params) {
+        try {
+            Query query = session.createQuery(queryString, Map.class);
+            getQueryOptions().applyTo(query);
+            setQueryParameter(query, params);
+            query.setFirstResult(startNum);
+            query.setMaxResults(maxResults);
+            return query.list();
+        } catch (ObjectNotFoundException e) {
+            LOG.trace("", e);
+            return new ArrayList();
+        }
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> queryPageAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, int startNum,
+        int maxResults, @Nonnull Iterable<?> params) {
+        return queryPageAsMap(getSession(context), queryString, startNum, maxResults, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> queryPageAsMap(@Nonnull String queryString, int startNum, int maxResults, @Nonnull Iterable<?> params) {
+        return queryPageAsMap(getTransactionContext(), queryString, startNum, maxResults, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> queryPageAsMap(@Nonnull String sessionFactoryName, @Nonnull String queryString, int startNum, int maxResults,
+        @Nonnull Iterable<?> params) {
+        return queryPageAsMap(getTransactionContext(sessionFactoryName), queryString, startNum, maxResults, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> queryPageAsMap(@Nonnull Session session, @Nonnull String queryString, int startNum, int maxResults,
+        @Nonnull Map<String, ?> params) {
+        try {
+            Query query = session.createQuery(queryString, Map.class);
+            getQueryOptions().applyTo(query);
+            setQueryParameter(query, params);
+            query.setFirstResult(startNum);
+            query.setMaxResults(maxResults);
+            return query.list();
+        } catch (ObjectNotFoundException e) {
+            LOG.trace("", e);
+            return new ArrayList();
+        }
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> queryPageAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, int startNum,
+        int maxResults, @Nonnull Map<String, ?> params) {
+        return queryPageAsMap(getSession(context), queryString, startNum, maxResults, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> queryPageAsMap(@Nonnull String queryString, int startNum, int maxResults, @Nonnull Map<String, ?> params) {
+        return queryPageAsMap(getTransactionContext(), queryString, startNum, maxResults, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取对象列表，限定起始结果和行数。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> queryPageAsMap(@Nonnull String sessionFactoryName, @Nonnull String queryString, int startNum, int maxResults,
+        @Nonnull Map<String, ?> params) {
+        return queryPageAsMap(getTransactionContext(sessionFactoryName), queryString, startNum, maxResults, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     */
+    public static long queryCount(@Nonnull Session session, @Nonnull String queryString, Object... params) {
+        return cached(session, "queryCount", queryString, params, () -> {
+            try {
+                Query query = session.createQuery(queryString, Long.class);
+                getQueryOptions().applyTo(query);
+                setQueryParameter(query, params);
+                Object r = query.uniqueResult();
+                if (r == null) {
+                    return 0L;
+                }
+                return ((Number) r).longValue();
+            } catch (ObjectNotFoundException e) {
+                LOG.trace("", e);
+                return 0L;
+            }
+        });
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     */
+    public static long queryCount(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, Object... params) {
+        return queryCount(getSession(context), queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     */
+    public static long queryCount(@Nonnull String queryString, Object... params) {
+        return queryCount(getTransactionContext(), queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     */
+    public static long queryCount(@Nonnull String sessionFactoryName, @Nonnull String queryString, Object... params) {
+        return queryCount(getTransactionContext(sessionFactoryName), queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     */
+    public static long queryCount(@Nonnull Session session, @Nonnull String queryString, @Nonnull Iterable<?> params) {
+        return cached(session, "queryCount", queryString, params, () -> {
+            Query query = session.createQuery(queryString, Long.class);
+            getQueryOptions().applyTo(query);
+            setQueryParameter(query, params);
+            Object r = query.uniqueResult();
+            if (r == null) {
+                return 0L;
+            }
+            return ((Number) r).longValue();
+        });
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     */
+    public static long queryCount(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, @Nonnull Iterable<?> params) {
+        return queryCount(getSession(context), queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     */
+    public static long queryCount(@Nonnull String queryString, @Nonnull Iterable<?> params) {
+        return queryCount(getTransactionContext(), queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     */
+    public static long queryCount(@Nonnull String sessionFactoryName, @Nonnull String queryString, @Nonnull Iterable<?> params) {
+        return queryCount(getTransactionContext(sessionFactoryName), queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     */
+    public static long queryCount(@Nonnull Session session, @Nonnull String queryString, @Nonnull Map<String, ?> params) {
+        return cached(session, "queryCount", queryString, params, () -> {
+            Query query = session.createQuery(queryString, Long.class);
+            getQueryOptions().applyTo(query);
+            setQueryParameter(query, params);
+            Object r = query.uniqueResult();
+            if (r == null) {
+                return 0L;
+            }
+            return ((Number) r).longValue();
+        });
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     */
+    public static long queryCount(@Nonnull HibernateTransactionContext context, @Nonnull String queryString, @Nonnull Map<String, ?> params) {
+        return queryCount(getSession(context), queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     */
+    public static long queryCount(@Nonnull String queryString, @Nonnull Map<String, ?> params) {
+        return queryCount(getTransactionContext(), queryString, params);
+    }
+
+    /**
+     * 根据 HQL 查询字符串和参数从数据库中获取整型返回值。
+     */
+    public static long queryCount(@Nonnull String sessionFactoryName, @Nonnull String queryString, @Nonnull Map<String, ?> params) {
+        return queryCount(getTransactionContext(sessionFactoryName), queryString, params);
+    }
+
+    public static <T> T doReturningWork(@Nonnull Session session, @Nonnull ReturningWork<T> work) {
+        return session.doReturningWork(work);
+    }
+
+    /**
+     * 执行 SQL 语句，同一会话内重复执行相同的 SQL 时复用预编译语句。
+     */
+    public static int updateSQL(@Nonnull Session session, @Nonnull String sql, Object... params) {
+        int result = doStatementWork(session, sql, stmt -> {
+            setParameters(stmt, 1, params);
+            return stmt.executeUpdate();
+        });
+        invalidateStatement(session, sql);
+        return result;
+    }
+
+    public static int updateSQL(@Nonnull HibernateTransactionContext context, @Nonnull String sql, Object... params) {
+        return updateSQL(getSession(context), sql, params);
+    }
+
+    public static int updateSQL(@Nonnull String sql, Object... params) {
+        return updateSQL(getTransactionContext(), sql, params);
     }
 
     public static int updateSQL(@Nonnull String sessionFactoryName, @Nonnull String sql, Object... params) {
         return updateSQL(getTransactionContext(sessionFactoryName), sql, params);
     }
 
+    public static int updateSQL(@Nonnull Session session, @Nonnull String sql, @Nonnull Iterable<?> params) {
+        return updateSQL(session, sql, toArray(params));
+    }
+
+    public static int updateSQL(@Nonnull HibernateTransactionContext context, @Nonnull String sql, @Nonnull Iterable<?> params) {
+        return updateSQL(getSession(context), sql, params);
+    }
+
+    public static int updateSQL(@Nonnull String sql, @Nonnull Iterable<?> params) {
+        return updateSQL(getTransactionContext(), sql, params);
+    }
+
+    public static int updateSQL(@Nonnull String sessionFactoryName, @Nonnull String sql, @Nonnull Iterable<?> params) {
+        return updateSQL(getTransactionContext(sessionFactoryName), sql, params);
+    }
+
+    /**
+     * 使用“:name”格式的命名参数，转换为位置参数后执行。
+     */
+    public static int updateSQL(@Nonnull Session session, @Nonnull String sql, @Nonnull Map<String, ?> params) {
+        NamedParameterSQL namedSql = NamedParameterSQL.parse(sql);
+        return updateSQL(session, namedSql.getSql(), namedSql.toArguments(params));
+    }
+
+    public static int updateSQL(@Nonnull HibernateTransactionContext context, @Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return updateSQL(getSession(context), sql, params);
+    }
+
+    public static int updateSQL(@Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return updateSQL(getTransactionContext(), sql, params);
+    }
+
+    public static int updateSQL(@Nonnull String sessionFactoryName, @Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return updateSQL(getTransactionContext(sessionFactoryName), sql, params);
+    }
+
+    /**
+     * 使用多组参数批量执行 SQL 语句，JDBC 批量大小使用 hibernate.jdbc.batch_size 的配置，返回每组参数影响的行数。
+     */
+    @Nonnull
+    public static int[] updateSQLBatch(@Nonnull Session session, @Nonnull String sql, @Nonnull Iterable<Object[]> paramsList) {
+        int configuredBatchSize = getJdbcBatchSize(session.getSessionFactory());
+        return updateSQLBatch(session, sql, configuredBatchSize > 0 ? configuredBatchSize : DEFAULT_BULK_BATCH_SIZE, paramsList);
+    }
+
+    @Nonnull
+    public static int[] updateSQLBatch(@Nonnull HibernateTransactionContext context, @Nonnull String sql, @Nonnull Iterable<Object[]> paramsList) {
+        return updateSQLBatch(getSession(context), sql, paramsList);
+    }
+
+    @Nonnull
+    public static int[] updateSQLBatch(@Nonnull String sql, @Nonnull Iterable<Object[]> paramsList) {
+        return updateSQLBatch(getTransactionContext(), sql, paramsList);
+    }
+
+    @Nonnull
+    public static int[] updateSQLBatch(@Nonnull String sessionFactoryName, @Nonnull String sql, @Nonnull Iterable<Object[]> paramsList) {
+        return updateSQLBatch(getTransactionContext(sessionFactoryName), sql, paramsList);
+    }
+
+    /**
+     * 使用多组参数批量执行 SQL 语句，每积累指定数量的参数提交一次，返回每组参数影响的行数。
+     */
+    @Nonnull
+    public static int[] updateSQLBatch(@Nonnull Session session, @Nonnull String sql, int batchSize, @Nonnull Iterable<Object[]> paramsList) {
+        int[] result = doReturningWork(session, connection -> {
+            try (PreparedStatement stmt = new BatchedPreparedStatement(connection.prepareStatement(sql), batchSize)) {
+                getQueryOptions().applyTo(stmt);
+                for (Object[] params : paramsList) {
+                    setParameters(stmt, 1, params);
+                    stmt.addBatch();
+                }
+                return stmt.executeBatch();
+            }
+        });
+        invalidateStatement(session, sql);
+        return result;
+    }
+
+    @Nonnull
+    public static int[] updateSQLBatch(@Nonnull HibernateTransactionContext context, @Nonnull String sql, int batchSize, @Nonnull Iterable<Object[]> paramsList) {
+        return updateSQLBatch(getSession(context), sql, batchSize, paramsList);
+    }
+
+    @Nonnull
+    public static int[] updateSQLBatch(@Nonnull String sql, int batchSize, @Nonnull Iterable<Object[]> paramsList) {
+        return updateSQLBatch(getTransactionContext(), sql, batchSize, paramsList);
+    }
+
+    @Nonnull
+    public static int[] updateSQLBatch(@Nonnull String sessionFactoryName, @Nonnull String sql, int batchSize, @Nonnull Iterable<Object[]> paramsList) {
+        return updateSQLBatch(getTransactionContext(sessionFactoryName), sql, batchSize, paramsList);
+    }
+
+    /**
+     * 执行 SQL 查询，同一会话内重复执行相同的 SQL 时复用预编译语句。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> querySQLAsMap(@Nonnull Session session, @Nonnull String sql, Object... params) {
+        return cached(session, "querySQLAsMap", sql, params, () -> {
+            return doStatementWork(session, sql, stmt -> {
+                setParameters(stmt, 1, params);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return SQL_MAPLIST_HANDLER.handle(rs);
+                }
+            });
+        });
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String sql, Object... params) {
+        return querySQLAsMap(getSession(context), sql, params);
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLAsMap(@Nonnull String sql, Object... params) {
+        return querySQLAsMap(getTransactionContext(), sql, params);
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLAsMap(@Nonnull String sessionFactoryName, @Nonnull String sql, Object... params) {
+        return querySQLAsMap(getTransactionContext(sessionFactoryName), sql, params);
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLAsMap(@Nonnull Session session, @Nonnull String sql, @Nonnull Iterable<?> params) {
+        return querySQLAsMap(session, sql, toArray(params));
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String sql, @Nonnull Iterable<?> params) {
+        return querySQLAsMap(getSession(context), sql, params);
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLAsMap(@Nonnull String sql, @Nonnull Iterable<?> params) {
+        return querySQLAsMap(getTransactionContext(), sql, params);
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLAsMap(@Nonnull String sessionFactoryName, @Nonnull String sql, @Nonnull Iterable<?> params) {
+        return querySQLAsMap(getTransactionContext(sessionFactoryName), sql, params);
+    }
+
+    /**
+     * 使用“:name”格式的命名参数，转换为位置参数后执行。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> querySQLAsMap(@Nonnull Session session, @Nonnull String sql, @Nonnull Map<String, ?> params) {
+        NamedParameterSQL namedSql = NamedParameterSQL.parse(sql);
+        return querySQLAsMap(session, namedSql.getSql(), namedSql.toArguments(params));
+    }
+
     @Nonnull
-    public static List<Map<String, Object>> querySQLAsMap(@Nonnull Session session, @Nonnull String sql) {
-        return doReturningWork(session, connection -> {
-            try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
-                return SQL_MAPLIST_HANDLER.handle(rs);
+    public static List<Map<String, Object>> querySQLAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return querySQLAsMap(getSession(context), sql, params);
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLAsMap(@Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return querySQLAsMap(getTransactionContext(), sql, params);
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLAsMap(@Nonnull String sessionFactoryName, @Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return querySQLAsMap(getTransactionContext(sessionFactoryName), sql, params);
+    }
+
+    /**
+     * 执行 SQL 查询，结果按列存储，比逐行生成映射占用更少的内存。
+     * 结果可以作为行映射的列表使用，每行是只读的映射视图。
+     *
+     * @param session
+     *     Hibernate 会话。
+     * @param sql
+     *     SQL 语句。
+     * @param params
+     *     SQL 参数。
+     * @return 查询结果。
+     */
+    @Nonnull
+    public static ColumnarResult querySQLAsColumns(@Nonnull Session session, @Nonnull String sql, Object... params) {
+        return doStatementWork(session, sql, stmt -> {
+            setParameters(stmt, 1, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return ColumnarResult.from(rs);
             }
         });
     }
 
     @Nonnull
-    public static List<Map<String, Object>> querySQLAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String sql) {
-        return querySQLAsMap(getSession(context), sql);
+    public static ColumnarResult querySQLAsColumns(@Nonnull HibernateTransactionContext context, @Nonnull String sql, Object... params) {
+        return querySQLAsColumns(getSession(context), sql, params);
     }
 
     @Nonnull
-    public static List<Map<String, Object>> querySQLAsMap(@Nonnull String sql) {
-        return querySQLAsMap(getTransactionContext(), sql);
+    public static ColumnarResult querySQLAsColumns(@Nonnull String sql, Object... params) {
+        return querySQLAsColumns(getTransactionContext(), sql, params);
     }
 
     @Nonnull
-    public static List<Map<String, Object>> querySQLAsMap(@Nonnull String sessionFactoryName, @Nonnull String sql) {
-        return querySQLAsMap(getTransactionContext(sessionFactoryName), sql);
+    public static ColumnarResult querySQLAsColumns(@Nonnull String sessionFactoryName, @Nonnull String sql, Object... params) {
+        return querySQLAsColumns(getTransactionContext(sessionFactoryName), sql, params);
     }
 
     @Nonnull
-    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull Session session, @Nonnull String sql, int startNum, int numPerPage) {
-        return doReturningWork(session, connection -> {
-            List<Map<String, Object>> table = new ArrayList<>();
+    public static ColumnarResult querySQLAsColumns(@Nonnull Session session, @Nonnull String sql, @Nonnull Iterable<?> params) {
+        return querySQLAsColumns(session, sql, toArray(params));
+    }
+
+    @Nonnull
+    public static ColumnarResult querySQLAsColumns(@Nonnull HibernateTransactionContext context, @Nonnull String sql, @Nonnull Iterable<?> params) {
+        return querySQLAsColumns(getSession(context), sql, params);
+    }
+
+    @Nonnull
+    public static ColumnarResult querySQLAsColumns(@Nonnull String sql, @Nonnull Iterable<?> params) {
+        return querySQLAsColumns(getTransactionContext(), sql, params);
+    }
+
+    @Nonnull
+    public static ColumnarResult querySQLAsColumns(@Nonnull String sessionFactoryName, @Nonnull String sql, @Nonnull Iterable<?> params) {
+        return querySQLAsColumns(getTransactionContext(sessionFactoryName), sql, params);
+    }
+
+    /**
+     * 使用“:name”格式的命名参数，转换为位置参数后执行。
+     */
+    @Nonnull
+    public static ColumnarResult querySQLAsColumns(@Nonnull Session session, @Nonnull String sql, @Nonnull Map<String, ?> params) {
+        NamedParameterSQL namedSql = NamedParameterSQL.parse(sql);
+        return querySQLAsColumns(session, namedSql.getSql(), namedSql.toArguments(params));
+    }
+
+    @Nonnull
+    public static ColumnarResult querySQLAsColumns(@Nonnull HibernateTransactionContext context, @Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return querySQLAsColumns(getSession(context), sql, params);
+    }
+
+    @Nonnull
+    public static ColumnarResult querySQLAsColumns(@Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return querySQLAsColumns(getTransactionContext(), sql, params);
+    }
+
+    @Nonnull
+    public static ColumnarResult querySQLAsColumns(@Nonnull String sessionFactoryName, @Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return querySQLAsColumns(getTransactionContext(sessionFactoryName), sql, params);
+    }
+
+    /**
+     * 分页执行 SQL 查询。
+     * 方言支持时使用 Hibernate 的 {@link LimitHandler} 改写 SQL，由数据库完成分页；
+     * 否则使用可滚动游标直接定位到起始行，驱动不支持可滚动游标时逐行跳过。
+     *
+     * @param session
+     *     Hibernate 会话。
+     * @param sql
+     *     SQL 语句。
+     * @param startNum
+     *     起始行，从 0 开始。
+     * @param numPerPage
+     *     每页行数。
+     * @param params
+     *     SQL 参数。
+     * @return 查询结果。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull Session session, @Nonnull String sql, int startNum, int numPerPage, Object... params) {
+        LimitHandler limitHandler = session.getSessionFactory().unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect().getLimitHandler();
+        if (limitHandler.supportsLimit() && (startNum <= 0 || limitHandler.supportsLimitOffset())) {
+            Limit limit = new Limit(Math.max(startNum, 0), numPerPage);
+            String limitSql = limitHandler.processSql(sql, limit);
+            return doStatementWork(session, limitSql, stmt -> {
+                int index = 1;
+                index += limitHandler.bindLimitParametersAtStartOfQuery(limit, stmt, index);
+                index = setParameters(stmt, index, params);
+                limitHandler.bindLimitParametersAtEndOfQuery(limit, stmt, index);
+                limitHandler.setMaxRows(limit, stmt);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return toMapList(rs, numPerPage);
+                }
+            });
+        }
 
-            try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
-                for (int index = 0; index < startNum && rs.next(); ++index) {
-                    // 空循环，跳过前面的记录
+        return doReturningWork(session, connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement(sql, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)) {
+                getQueryOptions().applyTo(stmt);
+                setParameters(stmt, 1, params);
+                long maxRows = (long) startNum + numPerPage;
+                if (maxRows <= Integer.MAX_VALUE) {
+                    stmt.setMaxRows((int) maxRows);
                 }
-                for (int index = 0; rs.next() && index < numPerPage; ++index) {
-                    Map<String, Object> row = ROW_PROCESSOR.toMap(rs);
-                    table.add(row);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (startNum > 0) {
+                        if (rs.getType() == ResultSet.TYPE_FORWARD_ONLY) {
+                            for (int index = 0; index < startNum && rs.next(); ++index) {
+                                // 空循环，跳过前面的记录
+                            }
+                        } else if (!rs.absolute(startNum)) {
+                            return new ArrayList<>();
+                        }
+                    }
+                    return toMapList(rs, numPerPage);
                 }
             }
-
-            return table;
         });
     }
 
     @Nonnull
-    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String sql, int startNum, int numPerPage) {
-        return querySQLPageAsMap(getSession(context), sql, startNum, numPerPage);
+    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String sql, int startNum, int numPerPage,
+        Object... params) {
+        return querySQLPageAsMap(getSession(context), sql, startNum, numPerPage, params);
     }
 
     @Nonnull
-    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull String sql, int startNum, int numPerPage) {
-        return querySQLPageAsMap(getTransactionContext(), sql, startNum, numPerPage);
+    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull String sql, int startNum, int numPerPage, Object... params) {
+        return querySQLPageAsMap(getTransactionContext(), sql, startNum, numPerPage, params);
     }
 
     @Nonnull
-    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull String sessionFactoryName, @Nonnull String sql, int startNum, int numPerPage) {
-        return querySQLPageAsMap(getTransactionContext(sessionFactoryName), sql, startNum, numPerPage);
+    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull String sessionFactoryName, @Nonnull String sql, int startNum, int numPerPage,
+        Object... params) {
+        return querySQLPageAsMap(getTransactionContext(sessionFactoryName), sql, startNum, numPerPage, params);
     }
 
-    public static long querySQLCount(@Nonnull Session session, @Nonnull String sql, Object... params) {
+    @Nonnull
+    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull Session session, @Nonnull String sql, int startNum, int numPerPage,
+        @Nonnull Iterable<?> params) {
+        return querySQLPageAsMap(session, sql, startNum, numPerPage, toArray(params));
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String sql, int startNum, int numPerPage,
+        @Nonnull Iterable<?> params) {
+        return querySQLPageAsMap(getSession(context), sql, startNum, numPerPage, params);
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull String sql, int startNum, int numPerPage, @Nonnull Iterable<?> params) {
+        return querySQLPageAsMap(getTransactionContext(), sql, startNum, numPerPage, params);
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull String sessionFactoryName, @Nonnull String sql, int startNum, int numPerPage,
+        @Nonnull Iterable<?> params) {
+        return querySQLPageAsMap(getTransactionContext(sessionFactoryName), sql, startNum, numPerPage, params);
+    }
+
+    /**
+     * 使用“:name”格式的命名参数，转换为位置参数后执行。
+     */
+    @Nonnull
+    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull Session session, @Nonnull String sql, int startNum, int numPerPage, @Nonnull Map<String,
+        ?> params) {
+        NamedParameterSQL namedSql = NamedParameterSQL.parse(sql);
+        return querySQLPageAsMap(session, namedSql.getSql(), startNum, numPerPage, namedSql.toArguments(params));
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull HibernateTransactionContext context, @Nonnull String sql, int startNum, int numPerPage,
+        @Nonnull Map<String, ?> params) {
+        return querySQLPageAsMap(getSession(context), sql, startNum, numPerPage, params);
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull String sql, int startNum, int numPerPage, @Nonnull Map<String, ?> params) {
+        return querySQLPageAsMap(getTransactionContext(), sql, startNum, numPerPage, params);
+    }
+
+    @Nonnull
+    public static List<Map<String, Object>> querySQLPageAsMap(@Nonnull String sessionFactoryName, @Nonnull String sql, int startNum, int numPerPage,
+        @Nonnull Map<String, ?> params) {
+        return querySQLPageAsMap(getTransactionContext(sessionFactoryName), sql, startNum, numPerPage, params);
+    }
+
+    /**
+     * 执行 SQL 查询，以流的形式逐行处理结果，流在处理函数返回后关闭。
+     * 使用只向前的只读游标，按抓取大小分批读取，内存占用不随行数增长。
+     * 流中的各行是同一个 {@link ResultSetRow} 视图，需要保留数据时使用 {@link ResultSetRow#toMap()} 复制。
+     *
+     * @param session
+     *     Hibernate 会话。
+     * @param sql
+     *     SQL 语句。
+     * @param fetchSize
+     *     JDBC 抓取大小，不大于 0 时使用驱动的默认值。
+     * @param work
+     *     处理函数。
+     * @param params
+     *     SQL 参数。
+     * @return 处理函数的返回值。
+     */
+    public static <R> R querySQLStream(@Nonnull Session session, @Nonnull String sql, int fetchSize, @Nonnull Function<? super Stream<ResultSetRow>, R> work,
+        Object... params) {
         return doReturningWork(session, connection -> {
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                if (params != null) {
-                    for (int i = 0; i < params.length; ++i) {
-                        stmt.setObject(i + 1, params[i]);
-                    }
+            try (PreparedStatement stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                getQueryOptions().applyTo(stmt);
+                if (fetchSize > 0) {
+                    stmt.setFetchSize(fetchSize);
+                }
+                setParameters(stmt, 1, params);
+                try (ResultSet rs = stmt.executeQuery(); Stream<ResultSetRow> rows = toRowStream(rs)) {
+                    return work.apply(rows);
                 }
+            }
+        });
+    }
+
+    public static <R> R querySQLStream(@Nonnull HibernateTransactionContext context, @Nonnull String sql, int fetchSize,
+        @Nonnull Function<? super Stream<ResultSetRow>, R> work, Object... params) {
+        return querySQLStream(getSession(context), sql, fetchSize, work, params);
+    }
+
+    public static <R> R querySQLStream(@Nonnull String sql, int fetchSize, @Nonnull Function<? super Stream<ResultSetRow>, R> work, Object... params) {
+        return querySQLStream(getTransactionContext(), sql, fetchSize, work, params);
+    }
+
+    public static <R> R querySQLStream(@Nonnull String sessionFactoryName, @Nonnull String sql, int fetchSize, @Nonnull Function<? super Stream<ResultSetRow>,
+        R> work, Object... params) {
+        return querySQLStream(getTransactionContext(sessionFactoryName), sql, fetchSize, work, params);
+    }
+
+    public static <R> R querySQLStream(@Nonnull Session session, @Nonnull String sql, int fetchSize, @Nonnull Function<? super Stream<ResultSetRow>, R> work,
+        @Nonnull Iterable<?> params) {
+        return querySQLStream(session, sql, fetchSize, work, toArray(params));
+    }
+
+    public static <R> R querySQLStream(@Nonnull HibernateTransactionContext context, @Nonnull String sql, int fetchSize,
+        @Nonnull Function<? super Stream<ResultSetRow>, R> work, @Nonnull Iterable<?> params) {
+        return querySQLStream(getSession(context), sql, fetchSize, work, params);
+    }
+
+    public static <R> R querySQLStream(@Nonnull String sql, int fetchSize, @Nonnull Function<? super Stream<ResultSetRow>, R> work, @Nonnull Iterable<?> params) {
+        return querySQLStream(getTransactionContext(), sql, fetchSize, work, params);
+    }
+
+    public static <R> R querySQLStream(@Nonnull String sessionFactoryName, @Nonnull String sql, int fetchSize, @Nonnull Function<? super Stream<ResultSetRow>,
+        R> work, @Nonnull Iterable<?> params) {
+        return querySQLStream(getTransactionContext(sessionFactoryName), sql, fetchSize, work, params);
+    }
+
+    /**
+     * 使用“:name”格式的命名参数，转换为位置参数后执行。
+     */
+    public static <R> R querySQLStream(@Nonnull Session session, @Nonnull String sql, int fetchSize, @Nonnull Function<? super Stream<ResultSetRow>, R> work,
+        @Nonnull Map<String, ?> params) {
+        NamedParameterSQL namedSql = NamedParameterSQL.parse(sql);
+        return querySQLStream(session, namedSql.getSql(), fetchSize, work, namedSql.toArguments(params));
+    }
+
+    public static <R> R querySQLStream(@Nonnull HibernateTransactionContext context, @Nonnull String sql, int fetchSize,
+        @Nonnull Function<? super Stream<ResultSetRow>, R> work, @Nonnull Map<String, ?> params) {
+        return querySQLStream(getSession(context), sql, fetchSize, work, params);
+    }
+
+    public static <R> R querySQLStream(@Nonnull String sql, int fetchSize, @Nonnull Function<? super Stream<ResultSetRow>, R> work, @Nonnull Map<String, ?> params) {
+        return querySQLStream(getTransactionContext(), sql, fetchSize, work, params);
+    }
+
+    public static <R> R querySQLStream(@Nonnull String sessionFactoryName, @Nonnull String sql, int fetchSize, @Nonnull Function<? super Stream<ResultSetRow>,
+        R> work, @Nonnull Map<String, ?> params) {
+        return querySQLStream(getTransactionContext(sessionFactoryName), sql, fetchSize, work, params);
+    }
+
+    /**
+     * 执行 SQL 查询，逐行回调处理结果，返回处理的行数。
+     * 使用只向前的只读游标，按抓取大小分批读取，内存占用不随行数增长。
+     * 每次回调传入同一个 {@link ResultSetRow} 视图，需要保留数据时使用 {@link ResultSetRow#toMap()} 复制。
+     *
+     * @param session
+     *     Hibernate 会话。
+     * @param sql
+     *     SQL 语句。
+     * @param fetchSize
+     *     JDBC 抓取大小，不大于 0 时使用驱动的默认值。
+     * @param action
+     *     处理每行的回调。
+     * @param params
+     *     SQL 参数。
+     * @return 处理的行数。
+     */
+    public static long querySQLForEach(@Nonnull Session session, @Nonnull String sql, int fetchSize, @Nonnull Consumer<? super ResultSetRow> action,
+        Object... params) {
+        return querySQLStream(session, sql, fetchSize, rows -> {
+            long count = 0;
+            for (Iterator<ResultSetRow> iterator = rows.iterator(); iterator.hasNext(); ++count) {
+                action.accept(iterator.next());
+            }
+            return count;
+        }, params);
+    }
+
+    public static long querySQLForEach(@Nonnull HibernateTransactionContext context, @Nonnull String sql, int fetchSize,
+        @Nonnull Consumer<? super ResultSetRow> action, Object... params) {
+        return querySQLForEach(getSession(context), sql, fetchSize, action, params);
+    }
+
+    public static long querySQLForEach(@Nonnull String sql, int fetchSize, @Nonnull Consumer<? super ResultSetRow> action, Object... params) {
+        return querySQLForEach(getTransactionContext(), sql, fetchSize, action, params);
+    }
+
+    public static long querySQLForEach(@Nonnull String sessionFactoryName, @Nonnull String sql, int fetchSize, @Nonnull Consumer<? super ResultSetRow> action,
+        Object... params) {
+        return querySQLForEach(getTransactionContext(sessionFactoryName), sql, fetchSize, action, params);
+    }
+
+    public static long querySQLForEach(@Nonnull Session session, @Nonnull String sql, int fetchSize, @Nonnull Consumer<? super ResultSetRow> action,
+        @Nonnull Iterable<?> params) {
+        return querySQLForEach(session, sql, fetchSize, action, toArray(params));
+    }
+
+    public static long querySQLForEach(@Nonnull HibernateTransactionContext context, @Nonnull String sql, int fetchSize,
+        @Nonnull Consumer<? super ResultSetRow> action, @Nonnull Iterable<?> params) {
+        return querySQLForEach(getSession(context), sql, fetchSize, action, params);
+    }
+
+    public static long querySQLForEach(@Nonnull String sql, int fetchSize, @Nonnull Consumer<? super ResultSetRow> action, @Nonnull Iterable<?> params) {
+        return querySQLForEach(getTransactionContext(), sql, fetchSize, action, params);
+    }
+
+    public static long querySQLForEach(@Nonnull String sessionFactoryName, @Nonnull String sql, int fetchSize, @Nonnull Consumer<? super ResultSetRow> action,
+        @Nonnull Iterable<?> params) {
+        return querySQLForEach(getTransactionContext(sessionFactoryName), sql, fetchSize, action, params);
+    }
+
+    /**
+     * 使用“:name”格式的命名参数，转换为位置参数后执行。
+     */
+    public static long querySQLForEach(@Nonnull Session session, @Nonnull String sql, int fetchSize, @Nonnull Consumer<? super ResultSetRow> action,
+        @Nonnull Map<String, ?> params) {
+        NamedParameterSQL namedSql = NamedParameterSQL.parse(sql);
+        return querySQLForEach(session, namedSql.getSql(), fetchSize, action, namedSql.toArguments(params));
+    }
+
+    public static long querySQLForEach(@Nonnull HibernateTransactionContext context, @Nonnull String sql, int fetchSize,
+        @Nonnull Consumer<? super ResultSetRow> action, @Nonnull Map<String, ?> params) {
+        return querySQLForEach(getSession(context), sql, fetchSize, action, params);
+    }
+
+    public static long querySQLForEach(@Nonnull String sql, int fetchSize, @Nonnull Consumer<? super ResultSetRow> action, @Nonnull Map<String, ?> params) {
+        return querySQLForEach(getTransactionContext(), sql, fetchSize, action, params);
+    }
+
+    public static long querySQLForEach(@Nonnull String sessionFactoryName, @Nonnull String sql, int fetchSize, @Nonnull Consumer<? super ResultSetRow> action,
+        @Nonnull Map<String, ?> params) {
+        return querySQLForEach(getTransactionContext(sessionFactoryName), sql, fetchSize, action, params);
+    }
+
+    /**
+     * 执行统计 SQL 查询，获取第一行第一列的值，同一会话内重复执行相同的 SQL 时复用预编译语句。
+     */
+    public static long querySQLCount(@Nonnull Session session, @Nonnull String sql, Object... params) {
+        return cached(session, "querySQLCount", sql, params, () -> {
+            return doStatementWork(session, sql, stmt -> {
+                setParameters(stmt, 1, params);
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (!rs.next()) {
                         return 0L;
                     }
                     return rs.getLong(1);
                 }
-            }
+            });
         });
     }
 
@@ -1194,28 +2694,57 @@ public final class HibernateHelper {
         return querySQLCount(getTransactionContext(sessionFactoryName), sql, params);
     }
 
+    public static long querySQLCount(@Nonnull Session session, @Nonnull String sql, @Nonnull Iterable<?> params) {
+        return querySQLCount(session, sql, toArray(params));
+    }
+
+    public static long querySQLCount(@Nonnull HibernateTransactionContext context, @Nonnull String sql, @Nonnull Iterable<?> params) {
+        return querySQLCount(getSession(context), sql, params);
+    }
+
+    public static long querySQLCount(@Nonnull String sql, @Nonnull Iterable<?> params) {
+        return querySQLCount(getTransactionContext(), sql, params);
+    }
+
+    public static long querySQLCount(@Nonnull String sessionFactoryName, @Nonnull String sql, @Nonnull Iterable<?> params) {
+        return querySQLCount(getTransactionContext(sessionFactoryName), sql, params);
+    }
+
+    /**
+     * 使用“:name”格式的命名参数，转换为位置参数后执行。
+     */
+    public static long querySQLCount(@Nonnull Session session, @Nonnull String sql, @Nonnull Map<String, ?> params) {
+        NamedParameterSQL namedSql = NamedParameterSQL.parse(sql);
+        return querySQLCount(session, namedSql.getSql(), namedSql.toArguments(params));
+    }
+
+    public static long querySQLCount(@Nonnull HibernateTransactionContext context, @Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return querySQLCount(getSession(context), sql, params);
+    }
+
+    public static long querySQLCount(@Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return querySQLCount(getTransactionContext(), sql, params);
+    }
+
+    public static long querySQLCount(@Nonnull String sessionFactoryName, @Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return querySQLCount(getTransactionContext(sessionFactoryName), sql, params);
+    }
+
+    /**
+     * 执行统计 SQL 查询，获取第一行前若干列的值，同一会话内重复执行相同的 SQL 时复用预编译语句。
+     */
     @Nonnull
     public static long[] querySQLCount(@Nonnull Session session, @Nonnull String sql, int countNum, Object... params) {
-        return doReturningWork(session, connection -> {
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                if (params != null) {
-                    for (int i = 0; i < params.length; ++i) {
-                        stmt.setObject(i + 1, params[i]);
-                    }
-                }
-                try (ResultSet rs = stmt.executeQuery()) {
-                    long[] result = new long[countNum];
-                    if (rs.next()) {
-                        for (int i = 0; i < countNum; ++i) {
-                            result[i] = rs.getLong(i + 1);
-                        }
-                    } else {
-                        for (int i = 0; i < countNum; ++i) {
-                            result[i] = 0L;
-                        }
+        return doStatementWork(session, sql, stmt -> {
+            setParameters(stmt, 1, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                long[] result = new long[countNum];
+                if (rs.next()) {
+                    for (int i = 0; i < countNum; ++i) {
+                        result[i] = rs.getLong(i + 1);
                     }
-                    return result;
                 }
+                return result;
             }
         });
     }
@@ -1234,4 +2763,145 @@ public final class HibernateHelper {
     public static long[] querySQLCount(@Nonnull String sessionFactoryName, @Nonnull String sql, int countNum, Object... params) {
         return querySQLCount(getTransactionContext(sessionFactoryName), sql, countNum, params);
     }
+
+    @Nonnull
+    public static long[] querySQLCount(@Nonnull Session session, @Nonnull String sql, int countNum, @Nonnull Iterable<?> params) {
+        return querySQLCount(session, sql, countNum, toArray(params));
+    }
+
+    @Nonnull
+    public static long[] querySQLCount(@Nonnull HibernateTransactionContext context, @Nonnull String sql, int countNum, @Nonnull Iterable<?> params) {
+        return querySQLCount(getSession(context), sql, countNum, params);
+    }
+
+    @Nonnull
+    public static long[] querySQLCount(@Nonnull String sql, int countNum, @Nonnull Iterable<?> params) {
+        return querySQLCount(getTransactionContext(), sql, countNum, params);
+    }
+
+    @Nonnull
+    public static long[] querySQLCount(@Nonnull String sessionFactoryName, @Nonnull String sql, int countNum, @Nonnull Iterable<?> params) {
+        return querySQLCount(getTransactionContext(sessionFactoryName), sql, countNum, params);
+    }
+
+    /**
+     * 使用“:name”格式的命名参数，转换为位置参数后执行。
+     */
+    @Nonnull
+    public static long[] querySQLCount(@Nonnull Session session, @Nonnull String sql, int countNum, @Nonnull Map<String, ?> params) {
+        NamedParameterSQL namedSql = NamedParameterSQL.parse(sql);
+        return querySQLCount(session, namedSql.getSql(), countNum, namedSql.toArguments(params));
+    }
+
+    @Nonnull
+    public static long[] querySQLCount(@Nonnull HibernateTransactionContext context, @Nonnull String sql, int countNum, @Nonnull Map<String, ?> params) {
+        return querySQLCount(getSession(context), sql, countNum, params);
+    }
+
+    @Nonnull
+    public static long[] querySQLCount(@Nonnull String sql, int countNum, @Nonnull Map<String, ?> params) {
+        return querySQLCount(getTransactionContext(), sql, countNum, params);
+    }
+
+    @Nonnull
+    public static long[] querySQLCount(@Nonnull String sessionFactoryName, @Nonnull String sql, int countNum, @Nonnull Map<String, ?> params) {
+        return querySQLCount(getTransactionContext(sessionFactoryName), sql, countNum, params);
+    }
+
+    /**
+     * 使用会话内缓存的预编译语句执行操作，操作成功后放回缓存，失败时关闭语句。
+     */
+    private static <T> T doStatementWork(@Nonnull Session session, @Nonnull String sql, @Nonnull StatementWork<T> work) {
+        NativeStatementCache cache = NativeStatementCache.of(session);
+        return doReturningWork(session, connection -> {
+            PreparedStatement stmt = cache.checkOut(connection, sql);
+            boolean success = false;
+            try {
+                getQueryOptions().applyTo(stmt);
+                T result = work.execute(stmt);
+                success = true;
+                return result;
+            } finally {
+                if (success) {
+                    cache.checkIn(connection, sql, stmt);
+                } else {
+                    cache.discard(stmt);
+                }
+            }
+        });
+    }
+
+    /**
+     * 把参数集合转换为数组。
+     */
+    private static Object[] toArray(Iterable<?> params) {
+        List<Object> list = new ArrayList<>();
+        for (Object param : params) {
+            list.add(param);
+        }
+        return list.toArray();
+    }
+
+    /**
+     * 把结果集包装为流，各行共用同一个视图。
+     */
+    private static Stream<ResultSetRow> toRowStream(ResultSet rs)
+        throws SQLException {
+        ResultSetRow row = new ResultSetRow(rs);
+        Spliterator<ResultSetRow> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super ResultSetRow> action) {
+                if (!row.next()) {
+                    return false;
+                }
+                action.accept(row);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * 从指定位置开始设置 SQL 参数，返回下一个参数位置。
+     */
+    private static int setParameters(PreparedStatement stmt, int index, Object[] params)
+        throws SQLException {
+        if (params == null) {
+            return index;
+        }
+        for (Object param : params) {
+            stmt.setObject(index++, param);
+        }
+        return index;
+    }
+
+    /**
+     * 从结果集当前位置之后读取最多若干行。
+     */
+    private static List<Map<String, Object>> toMapList(ResultSet rs, int maxRows)
+        throws SQLException {
+        List<Map<String, Object>> table = new ArrayList<>();
+        for (int index = 0; index < maxRows && rs.next(); ++index) {
+            Map<String, Object> row = ROW_PROCESSOR.toMap(rs);
+            table.add(row);
+        }
+        return table;
+    }
+
+    /**
+     * Hibernate 无状态会话的单个对象操作。
+     */
+    @FunctionalInterface
+    private interface StatelessOperation {
+        void execute(StatelessSession statelessSession, Object object);
+    }
+
+    /**
+     * 使用预编译语句的操作。
+     */
+    @FunctionalInterface
+    private interface StatementWork<T> {
+        T execute(PreparedStatement stmt)
+            throws SQLException;
+    }
 }
@@ -4,11 +4,20 @@
  */
 package net.matrix.sql.hibernate;
 
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import jakarta.persistence.PersistenceException;
+import jakarta.transaction.Synchronization;
 
+import org.hibernate.FlushMode;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
@@ -19,6 +28,8 @@ import net.matrix.text.ResourceBundleMessageFormatter;
 
 /**
  * Hibernate 事务上下文。
+ * Hibernate 会话被 {@link SessionFactoryManager#reapTransactionContexts(Duration)} 标记为废弃后，
+ * 所属线程下次获取会话或启动事务时撤销事务并释放会话；释放时有未结束的事务则抛出 {@link IllegalStateException}。
  */
 public class HibernateTransactionContext {
     /**
@@ -49,6 +60,45 @@ public class HibernateTransactionContext {
     @Nullable
     private Transaction transaction;
 
+    /**
+     * 是否有延迟启动的事务，在首次获取 Hibernate 会话时启动。
+     */
+    private boolean transactionDeferred;
+
+    /**
+     * 是否只读事务。
+     */
+    private boolean readOnly;
+
+    /**
+     * 启动只读事务前 Hibernate 会话的默认只读设置。
+     */
+    private boolean previousDefaultReadOnly;
+
+    /**
+     * 启动只读事务前 Hibernate 会话的刷新模式。
+     */
+    @Nullable
+    private FlushMode previousFlushMode;
+
+    /**
+     * 建立 Hibernate 会话的线程，使用弱引用，不阻止已结束的线程被回收。
+     */
+    @Nullable
+    private volatile WeakReference<Thread> sessionOwner;
+
+    /**
+     * 建立 Hibernate 会话的时间。
+     */
+    @Nullable
+    private volatile Instant sessionCreateTime;
+
+    /**
+     * 被标记为废弃的 Hibernate 会话的建立时间，与当前会话的建立时间相同时，所属线程下次访问时释放会话。
+     */
+    @Nullable
+    private volatile Instant abandonedSessionCreateTime;
+
     /**
      * 构造器，使用指定 Hibernate 会话工厂管理器。
      *
@@ -66,25 +116,236 @@ public class HibernateTransactionContext {
      */
     @Nonnull
     public Session getSession() {
+        checkAbandoned();
         if (session == null) {
             session = sessionFactoryManager.createSession();
+            sessionOwner = new WeakReference<>(Thread.currentThread());
+            sessionCreateTime = Instant.now();
+            sessionFactoryManager.registerTransactionContext(this);
+        }
+        if (transactionDeferred) {
+            transactionDeferred = false;
+            transaction = session.beginTransaction();
         }
         return session;
     }
 
+    /**
+     * 获取建立 Hibernate 会话的线程，没有建立会话时返回 null。
+     */
+    @Nullable
+    public Thread getSessionOwner() {
+        WeakReference<Thread> owner = sessionOwner;
+        return owner == null ? null : owner.get();
+    }
+
+    /**
+     * 获取建立 Hibernate 会话的时间，没有建立会话时返回 null。
+     */
+    @Nullable
+    public Instant getSessionCreateTime() {
+        return sessionCreateTime;
+    }
+
+    /**
+     * 把 Hibernate 会话标记为废弃，由所属线程下次访问事务上下文时撤销事务并释放会话。
+     * 会话已经释放或重新建立时不做标记。
+     *
+     * @param createTime
+     *     要标记的 Hibernate 会话的建立时间。
+     * @return 是否新标记。
+     */
+    boolean abandon(@Nonnull Instant createTime) {
+        if (createTime != sessionCreateTime || createTime == abandonedSessionCreateTime) {
+            return false;
+        }
+        abandonedSessionCreateTime = createTime;
+        return true;
+    }
+
+    /**
+     * 判断 Hibernate 会话是否已被标记为废弃。
+     */
+    public boolean isAbandoned() {
+        Instant createTime = abandonedSessionCreateTime;
+        return createTime != null && createTime == sessionCreateTime;
+    }
+
+    /**
+     * Hibernate 会话已被标记为废弃时，撤销事务并释放会话。
+     *
+     * @throws IllegalStateException
+     *     释放时有未结束的事务，事务已撤销。
+     */
+    private void checkAbandoned() {
+        if (!isAbandoned()) {
+            return;
+        }
+
+        boolean inTransaction = transaction != null;
+        LOG.warn(RBMF.get("事务上下文的 Hibernate 会话已被标记为废弃，释放会话"));
+        release();
+        sessionFactoryManager.recordReapedTransactionContext();
+        if (inTransaction) {
+            throw new IllegalStateException(RBMF.get("事务上下文的 Hibernate 会话已被标记为废弃，未结束的事务已撤销"));
+        }
+    }
+
     /**
      * 启动事务。
      */
     public void begin() {
+        checkAbandoned();
         if (transaction == null) {
+            transactionDeferred = false;
             transaction = getSession().beginTransaction();
         }
     }
 
+    /**
+     * 延迟启动事务，只记录启动意图，在首次获取 Hibernate 会话时才建立会话并启动事务。
+     * 没有访问数据库时，提交和撤销不做任何操作，也不占用数据库连接。
+     */
+    public void beginDeferred() {
+        checkAbandoned();
+        if (transaction == null) {
+            transactionDeferred = true;
+        }
+    }
+
+    /**
+     * 启动只读事务。Hibernate 会话默认以只读方式加载实体，不保存快照也不做脏检查，不自动 flush()，数据库连接也设置为只读。
+     * 事务结束后恢复 Hibernate 会话和数据库连接原来的设置，但事务中加载的实体仍保持只读。
+     */
+    public void beginReadOnly() {
+        checkAbandoned();
+        if (transaction != null) {
+            return;
+        }
+
+        transactionDeferred = false;
+        Session currentSession = getSession();
+        Connection connection = currentSession.doReturningWork(conn -> {
+            conn.setReadOnly(true);
+            return conn;
+        });
+        previousDefaultReadOnly = currentSession.isDefaultReadOnly();
+        previousFlushMode = currentSession.getHibernateFlushMode();
+        currentSession.setDefaultReadOnly(true);
+        currentSession.setHibernateFlushMode(FlushMode.MANUAL);
+        readOnly = true;
+        try {
+            transaction = currentSession.beginTransaction();
+        } catch (RuntimeException e) {
+            endReadOnly();
+            resetReadOnly(connection);
+            throw e;
+        }
+        transaction.registerSynchronization(new ReadOnlyConnectionSynchronization(connection));
+    }
+
+    /**
+     * 判断是否只读事务。
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * 结束只读事务，恢复 Hibernate 会话启动只读事务前的设置。
+     */
+    private void endReadOnly() {
+        if (!readOnly) {
+            return;
+        }
+
+        readOnly = false;
+        if (session != null && session.isOpen()) {
+            session.setDefaultReadOnly(previousDefaultReadOnly);
+            session.setHibernateFlushMode(previousFlushMode);
+        }
+        previousFlushMode = null;
+    }
+
+    /**
+     * 恢复数据库连接的只读设置。
+     */
+    private static void resetReadOnly(Connection connection) {
+        try {
+            if (!connection.isClosed() && connection.isReadOnly()) {
+                connection.setReadOnly(false);
+            }
+        } catch (SQLException e) {
+            LOG.warn(RBMF.get("恢复数据库连接只读设置失败"), e);
+        }
+    }
+
+    /**
+     * 判断是否已启动事务，包括延迟启动的事务。
+     */
+    public boolean isActive() {
+        return transaction != null || transactionDeferred;
+    }
+
+    /**
+     * 在事务中执行操作，负责启动、提交、撤销事务和释放事务资源。
+     * 事务因死锁或串行化失败而失败时，按重试策略重新执行。
+     * 已启动事务时，直接在当前事务中执行操作，不重试。
+     *
+     * @param retryPolicy
+     *     事务重试策略。
+     * @param work
+     *     操作。
+     * @return 操作结果。
+     */
+    public <T> T execute(@Nonnull TransactionRetryPolicy retryPolicy, @Nonnull Function<HibernateTransactionContext, T> work) {
+        checkAbandoned();
+        if (isActive()) {
+            return work.apply(this);
+        }
+
+        long startTime = System.nanoTime();
+        for (int attempt = 1;; ++attempt) {
+            beginDeferred();
+            try {
+                T result = work.apply(this);
+                commit();
+                return result;
+            } catch (RuntimeException e) {
+                try {
+                    rollback();
+                } catch (RuntimeException re) {
+                    e.addSuppressed(re);
+                }
+                if (attempt >= retryPolicy.getMaxAttempts() || !retryPolicy.isRetriable(e)) {
+                    throw e;
+                }
+                Duration backoff = retryPolicy.getBackoff(attempt);
+                Duration elapsed = Duration.ofNanos(System.nanoTime() - startTime);
+                if (elapsed.plus(backoff).compareTo(retryPolicy.getBudget()) > 0) {
+                    throw e;
+                }
+
+                LOG.warn(RBMF.get("Hibernate 事务第 {} 次执行失败，{} 后重试"), attempt, backoff, e);
+                sessionFactoryManager.recordTransactionRetry();
+                try {
+                    Thread.sleep(backoff.toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    e.addSuppressed(ie);
+                    throw e;
+                }
+            } finally {
+                release();
+            }
+        }
+    }
+
     /**
      * 提交事务。
      */
     public void commit() {
+        transactionDeferred = false;
         if (transaction == null) {
             return;
         }
@@ -93,6 +354,7 @@ public class HibernateTransactionContext {
             transaction.commit();
         } finally {
             transaction = null;
+            endReadOnly();
         }
     }
 
@@ -100,6 +362,7 @@ public class HibernateTransactionContext {
      * 撤销事务。
      */
     public void rollback() {
+        transactionDeferred = false;
         if (transaction == null) {
             return;
         }
@@ -108,6 +371,7 @@ public class HibernateTransactionContext {
             transaction.rollback();
         } finally {
             transaction = null;
+            endReadOnly();
         }
     }
 
@@ -115,6 +379,7 @@ public class HibernateTransactionContext {
      * 释放事务资源。
      */
     public void release() {
+        transactionDeferred = false;
         if (transaction != null) {
             try {
                 if (transaction.isActive()) {
@@ -124,6 +389,7 @@ public class HibernateTransactionContext {
                 LOG.warn(RBMF.get("撤销 Hibernate 事务失败"), e);
             } finally {
                 transaction = null;
+                endReadOnly();
             }
         }
         if (session != null) {
@@ -133,7 +399,36 @@ public class HibernateTransactionContext {
                 LOG.warn(RBMF.get("关闭 Hibernate 会话失败"), e);
             } finally {
                 session = null;
+                sessionOwner = null;
+                sessionCreateTime = null;
+                abandonedSessionCreateTime = null;
+                sessionFactoryManager.unregisterTransactionContext(this);
             }
         }
     }
+
+    /**
+     * 事务结束后、释放数据库连接前，恢复数据库连接的只读设置。
+     */
+    private static final class ReadOnlyConnectionSynchronization
+        implements Synchronization {
+        /**
+         * 数据库连接。
+         */
+        private final Connection connection;
+
+        ReadOnlyConnectionSynchronization(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void beforeCompletion() {
+            // 事务结束前无需处理
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            resetReadOnly(connection);
+        }
+    }
 }
@@ -0,0 +1,287 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 键集分页游标，记录上一页最后一行的键值，可以序列化为字符串在客户端与服务端之间传递。
+ * 字符串中每个键值带有类型标记，只支持字符串、数字、布尔、日期时间和 UUID 类型，不使用 Java 对象序列化。
+ */
+@Immutable
+public final class KeysetCursor
+    implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(KeysetCursor.class).useCurrentLocale();
+
+    /**
+     * 字符串的最大长度。
+     */
+    private static final int MAX_TOKEN_LENGTH = 4096;
+
+    /**
+     * 键的最大数量。
+     */
+    private static final int MAX_KEY_COUNT = 32;
+
+    /**
+     * 键值，按键的顺序排列。
+     */
+    @Nonnull
+    private final LinkedHashMap<String, Object> keys;
+
+    /**
+     * 构造器，使用指定键值。
+     *
+     * @param keys
+     *     键值，按键的顺序排列。
+     */
+    public KeysetCursor(@Nonnull Map<String, ?> keys) {
+        this.keys = new LinkedHashMap<>(keys);
+    }
+
+    /**
+     * 获取键值。
+     */
+    @Nonnull
+    public Map<String, Object> getKeys() {
+        return Collections.unmodifiableMap(keys);
+    }
+
+    /**
+     * 按指定键的顺序获取键值。
+     *
+     * @param keyPaths
+     *     键。
+     * @return 键值。
+     * @throws IllegalArgumentException
+     *     游标中没有某个键。
+     */
+    @Nonnull
+    public Object[] getValues(@Nonnull List<String> keyPaths) {
+        Object[] values = new Object[keyPaths.size()];
+        for (int i = 0; i < values.length; ++i) {
+            String keyPath = keyPaths.get(i);
+            if (!keys.containsKey(keyPath)) {
+                throw new IllegalArgumentException(RBMF.format("游标中没有键 {0}", keyPath));
+            }
+            values[i] = keys.get(keyPath);
+        }
+        return values;
+    }
+
+    /**
+     * 序列化为字符串。
+     *
+     * @return 字符串。
+     * @throws IllegalArgumentException
+     *     键值类型不支持，或者键的数量、字符串长度超过上限。
+     */
+    @Nonnull
+    public String toToken() {
+        if (keys.size() > MAX_KEY_COUNT) {
+            throw new IllegalArgumentException(RBMF.format("游标中键的数量 {0} 超过上限 {1}", keys.size(), MAX_KEY_COUNT));
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(buffer)) {
+            output.writeShort(keys.size());
+            for (Map.Entry<String, Object> entry : keys.entrySet()) {
+                Object value = entry.getValue();
+                ValueType type = ValueType.of(value);
+                if (type == null) {
+                    throw new IllegalArgumentException(RBMF.format("键 {0} 的值类型 {1} 不能写入游标", entry.getKey(), value.getClass().getName()));
+                }
+                output.writeUTF(entry.getKey());
+                output.writeByte(type.tag);
+                if (value != null) {
+                    output.writeUTF(type.format(value));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.toByteArray());
+        if (token.length() > MAX_TOKEN_LENGTH) {
+            throw new IllegalArgumentException(RBMF.format("游标长度 {0} 超过上限 {1}", token.length(), MAX_TOKEN_LENGTH));
+        }
+        return token;
+    }
+
+    /**
+     * 从字符串反序列化。
+     *
+     * @param token
+     *     字符串。
+     * @return 游标。
+     * @throws IllegalArgumentException
+     *     字符串格式错误。
+     */
+    @Nonnull
+    public static KeysetCursor fromToken(@Nonnull String token) {
+        if (token.length() > MAX_TOKEN_LENGTH) {
+            throw new IllegalArgumentException(RBMF.format("游标长度 {0} 超过上限 {1}", token.length(), MAX_TOKEN_LENGTH));
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            int count = input.readUnsignedShort();
+            if (count > MAX_KEY_COUNT) {
+                throw new StreamCorruptedException();
+            }
+            LinkedHashMap<String, Object> keys = new LinkedHashMap<>();
+            for (int i = 0; i < count; ++i) {
+                String key = input.readUTF();
+                ValueType type = ValueType.ofTag(input.readByte());
+                if (type == null) {
+                    throw new StreamCorruptedException();
+                }
+                keys.put(key, type == ValueType.NULL ? null : type.parse(input.readUTF()));
+            }
+            if (input.available() > 0) {
+                throw new StreamCorruptedException();
+            }
+            return new KeysetCursor(keys);
+        } catch (IOException | IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException(RBMF.format("游标 {0} 格式错误", token), e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof KeysetCursor other)) {
+            return false;
+        }
+        return keys.equals(other.keys);
+    }
+
+    @Override
+    public int hashCode() {
+        return keys.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetCursor" + keys;
+    }
+
+    /**
+     * 游标中键值的类型，每个类型使用一个字节的标记，值使用字符串形式。
+     */
+    private enum ValueType {
+        NULL('N', null, null, null),
+        STRING('S', String.class, value -> value, Object::toString),
+        LONG('J', Long.class, Long::valueOf, Object::toString),
+        INTEGER('I', Integer.class, Integer::valueOf, Object::toString),
+        SHORT('H', Short.class, Short::valueOf, Object::toString),
+        BYTE('B', Byte.class, Byte::valueOf, Object::toString),
+        DOUBLE('D', Double.class, Double::valueOf, Object::toString),
+        FLOAT('F', Float.class, Float::valueOf, Object::toString),
+        BIG_DECIMAL('M', BigDecimal.class, BigDecimal::new, Object::toString),
+        BIG_INTEGER('G', BigInteger.class, BigInteger::new, Object::toString),
+        BOOLEAN('Z', Boolean.class, Boolean::valueOf, Object::toString),
+        UUID_VALUE('U', UUID.class, UUID::fromString, Object::toString),
+        LOCAL_DATE('d', LocalDate.class, LocalDate::parse, Object::toString),
+        LOCAL_TIME('t', LocalTime.class, LocalTime::parse, Object::toString),
+        LOCAL_DATE_TIME('T', LocalDateTime.class, LocalDateTime::parse, Object::toString),
+        OFFSET_DATE_TIME('O', OffsetDateTime.class, OffsetDateTime::parse, Object::toString),
+        INSTANT('i', Instant.class, Instant::parse, Object::toString),
+        DATE('u', java.util.Date.class, value -> new java.util.Date(Long.parseLong(value)), value -> Long.toString(((java.util.Date) value).getTime())),
+        SQL_DATE('s', java.sql.Date.class, java.sql.Date::valueOf, Object::toString),
+        SQL_TIMESTAMP('p', java.sql.Timestamp.class, java.sql.Timestamp::valueOf, Object::toString);
+
+        /**
+         * 类型标记。
+         */
+        private final char tag;
+
+        /**
+         * 值类型，类型必须完全相同。
+         */
+        private final Class<?> valueClass;
+
+        /**
+         * 从字符串形式解析值。
+         */
+        private final Function<String, Object> parser;
+
+        /**
+         * 把值转换为字符串形式。
+         */
+        private final Function<Object, String> formatter;
+
+        ValueType(char tag, Class<?> valueClass, Function<String, Object> parser, Function<Object, String> formatter) {
+            this.tag = tag;
+            this.valueClass = valueClass;
+            this.parser = parser;
+            this.formatter = formatter;
+        }
+
+        /**
+         * 获取值的类型，不支持时返回 null。
+         */
+        static ValueType of(Object value) {
+            if (value == null) {
+                return NULL;
+            }
+            for (ValueType type : values()) {
+                if (type.valueClass == value.getClass()) {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 获取类型标记对应的类型，不支持时返回 null。
+         */
+        static ValueType ofTag(byte tag) {
+            for (ValueType type : values()) {
+                if (type.tag == tag) {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+        Object parse(String value) {
+            return parser.apply(value);
+        }
+
+        String format(Object value) {
+            return formatter.apply(value);
+        }
+    }
+}
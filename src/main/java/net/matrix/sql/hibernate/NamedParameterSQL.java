@@ -0,0 +1,131 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 使用“:name”格式命名参数的 SQL，转换为 JDBC 的“?”格式位置参数。
+ * 忽略引号内的字符串、注释和“::”格式的类型转换。
+ */
+@Immutable
+final class NamedParameterSQL {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(NamedParameterSQL.class).useCurrentLocale();
+
+    /**
+     * 使用位置参数的 SQL。
+     */
+    @Nonnull
+    private final String sql;
+
+    /**
+     * 参数名，按位置排列，同名参数出现多次时重复。
+     */
+    @Nonnull
+    private final List<String> parameterNames;
+
+    private NamedParameterSQL(String sql, List<String> parameterNames) {
+        this.sql = sql;
+        this.parameterNames = Collections.unmodifiableList(parameterNames);
+    }
+
+    /**
+     * 解析 SQL 中的命名参数。
+     *
+     * @param namedSql
+     *     使用命名参数的 SQL。
+     * @return 解析结果。
+     */
+    @Nonnull
+    static NamedParameterSQL parse(@Nonnull String namedSql) {
+        StringBuilder sql = new StringBuilder(namedSql.length());
+        List<String> parameterNames = new ArrayList<>();
+        int length = namedSql.length();
+        int index = 0;
+        while (index < length) {
+            char c = namedSql.charAt(index);
+            if (c == '\'' || c == '"') {
+                int end = namedSql.indexOf(c, index + 1);
+                end = end < 0 ? length : end + 1;
+                sql.append(namedSql, index, end);
+                index = end;
+            } else if (c == '-' && namedSql.startsWith("--", index)) {
+                int end = namedSql.indexOf('\n', index);
+                end = end < 0 ? length : end + 1;
+                sql.append(namedSql, index, end);
+                index = end;
+            } else if (c == '/' && namedSql.startsWith("/*", index)) {
+                int end = namedSql.indexOf("*/", index + 2);
+                end = end < 0 ? length : end + 2;
+                sql.append(namedSql, index, end);
+                index = end;
+            } else if (c == ':' && namedSql.startsWith("::", index)) {
+                sql.append("::");
+                index += 2;
+            } else if (c == ':' && index + 1 < length && Character.isJavaIdentifierStart(namedSql.charAt(index + 1))) {
+                int end = index + 2;
+                while (end < length && Character.isJavaIdentifierPart(namedSql.charAt(end))) {
+                    ++end;
+                }
+                parameterNames.add(namedSql.substring(index + 1, end));
+                sql.append('?');
+                index = end;
+            } else {
+                sql.append(c);
+                ++index;
+            }
+        }
+        return new NamedParameterSQL(sql.toString(), parameterNames);
+    }
+
+    /**
+     * 获取使用位置参数的 SQL。
+     */
+    @Nonnull
+    String getSql() {
+        return sql;
+    }
+
+    /**
+     * 获取参数名，按位置排列。
+     */
+    @Nonnull
+    List<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * 按位置排列参数值。
+     *
+     * @param params
+     *     参数名到参数值的映射。
+     * @return 参数值。
+     * @throws IllegalArgumentException
+     *     缺少参数。
+     */
+    @Nonnull
+    Object[] toArguments(@Nonnull Map<String, ?> params) {
+        Object[] arguments = new Object[parameterNames.size()];
+        for (int i = 0; i < arguments.length; ++i) {
+            String name = parameterNames.get(i);
+            if (!params.containsKey(name)) {
+                throw new IllegalArgumentException(RBMF.format("缺少 SQL 参数 {0}", name));
+            }
+            arguments[i] = params.get(name);
+        }
+        return arguments;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hibernate 会话内的原生 SQL 预编译语句缓存，同一会话重复执行相同的 SQL 时复用预编译语句。
+ * 语句使用时从缓存中取出，用完放回，嵌套执行相同的 SQL 时使用新的语句。
+ * 放回时恢复语句创建时的获取行数和查询超时，下次使用不受上次设置的影响。
+ * 数据库连接释放或会话结束时关闭缓存的语句。
+ */
+@NotThreadSafe
+final class NativeStatementCache
+    implements SessionEventListener {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 日志记录器。
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(NativeStatementCache.class);
+
+    /**
+     * 每个会话缓存的语句数量上限。
+     */
+    private static final int MAX_STATEMENTS = 64;
+
+    /**
+     * 各会话的缓存，会话不再使用后自动移除。
+     */
+    private static final Map<SessionImplementor, NativeStatementCache> CACHES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * 缓存的语句所属的数据库连接。
+     */
+    private transient Connection connection;
+
+    /**
+     * 按 SQL 缓存的语句，按最近使用的顺序排列。
+     */
+    private final transient LinkedHashMap<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 缓存创建的语句的原有设置，包括已取出的语句。
+     */
+    private final transient Map<PreparedStatement, StatementSettings> settings = new IdentityHashMap<>();
+
+    private NativeStatementCache() {
+    }
+
+    /**
+     * 获取会话的缓存，首次获取时注册会话事件监听器。
+     *
+     * @param session
+     *     Hibernate 会话。
+     * @return 缓存。
+     */
+    @Nonnull
+    static NativeStatementCache of(@Nonnull Session session) {
+        return CACHES.computeIfAbsent(session.unwrap(SessionImplementor.class), key -> {
+            NativeStatementCache cache = new NativeStatementCache();
+            key.addEventListeners(cache);
+            return cache;
+        });
+    }
+
+    /**
+     * 取出 SQL 对应的语句，缓存中没有时创建新的语句。
+     *
+     * @param currentConnection
+     *     数据库连接。
+     * @param sql
+     *     SQL 语句。
+     * @return 语句。
+     * @throws SQLException
+     *     创建语句失败。
+     */
+    @Nonnull
+    PreparedStatement checkOut(@Nonnull Connection currentConnection, @Nonnull String sql)
+        throws SQLException {
+        if (connection != currentConnection) {
+            closeAll();
+            connection = currentConnection;
+        }
+
+        PreparedStatement statement = statements.remove(sql);
+        if (statement != null && !statement.isClosed()) {
+            statement.clearParameters();
+            return statement;
+        }
+        if (statement != null) {
+            settings.remove(statement);
+        }
+
+        PreparedStatement created = currentConnection.prepareStatement(sql);
+        settings.put(created, new StatementSettings(created.getFetchSize(), created.getQueryTimeout()));
+        return created;
+    }
+
+    /**
+     * 放回用完的语句并恢复其原有设置，已有相同 SQL 的语句或连接已变化时关闭该语句。
+     *
+     * @param currentConnection
+     *     取出语句时的数据库连接。
+     * @param sql
+     *     SQL 语句。
+     * @param statement
+     *     语句。
+     * @throws SQLException
+     *     关闭语句失败。
+     */
+    void checkIn(@Nonnull Connection currentConnection, @Nonnull String sql, @Nonnull PreparedStatement statement)
+        throws SQLException {
+        StatementSettings original = settings.get(statement);
+        if (currentConnection != connection || original == null || statements.containsKey(sql)) {
+            discard(statement);
+            return;
+        }
+
+        original.restore(statement);
+        statements.put(sql, statement);
+        if (statements.size() > MAX_STATEMENTS) {
+            Iterator<PreparedStatement> iterator = statements.values().iterator();
+            PreparedStatement eldest = iterator.next();
+            iterator.remove();
+            discard(eldest);
+        }
+    }
+
+    /**
+     * 关闭取出的语句，不再放回。
+     *
+     * @param statement
+     *     语句。
+     * @throws SQLException
+     *     关闭语句失败。
+     */
+    void discard(@Nonnull PreparedStatement statement)
+        throws SQLException {
+        settings.remove(statement);
+        statement.close();
+    }
+
+    /**
+     * 获取缓存中 SQL 对应的语句，不取出，没有时返回 null。
+     *
+     * @param sql
+     *     SQL 语句。
+     * @return 语句。
+     */
+    PreparedStatement getCached(@Nonnull String sql) {
+        return statements.get(sql);
+    }
+
+    /**
+     * 关闭缓存的所有语句。
+     */
+    void closeAll() {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                LOG.warn("", e);
+            }
+        }
+        statements.clear();
+        settings.clear();
+        connection = null;
+    }
+
+    @Override
+    public void jdbcConnectionReleaseStart() {
+        closeAll();
+    }
+
+    @Override
+    public void end() {
+        closeAll();
+    }
+
+    /**
+     * 语句创建时的获取行数和查询超时。
+     */
+    private record StatementSettings(int fetchSize, int queryTimeout) {
+        /**
+         * 恢复语句的设置。
+         */
+        void restore(PreparedStatement statement)
+            throws SQLException {
+            if (statement.getFetchSize() != fetchSize) {
+                statement.setFetchSize(fetchSize);
+            }
+            if (statement.getQueryTimeout() != queryTimeout) {
+                statement.setQueryTimeout(queryTimeout);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * 分页查询结果，包括当前页的数据和总行数。
+ *
+ * @param <T>
+ *     数据类型。
+ */
+@Immutable
+public final class PageResult<T> {
+    /**
+     * 当前页的数据。
+     */
+    @Nonnull
+    private final List<T> content;
+
+    /**
+     * 总行数。
+     */
+    private final long total;
+
+    /**
+     * 构造器，使用指定数据和总行数。
+     *
+     * @param content
+     *     当前页的数据。
+     * @param total
+     *     总行数。
+     */
+    public PageResult(@Nonnull List<? extends T> content, long total) {
+        this.content = Collections.unmodifiableList(content);
+        this.total = total;
+    }
+
+    /**
+     * 获取当前页的数据。
+     */
+    @Nonnull
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * 获取总行数。
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "PageResult[total=" + total + ", content=" + content + "]";
+    }
+}
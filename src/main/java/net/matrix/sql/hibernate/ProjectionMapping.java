@@ -0,0 +1,254 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.beans.Introspector;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 投影类型到实体属性的映射，支持记录类、构造器参数与属性同名的类和只有 getter 方法的接口。
+ * 记录类和普通类使用构造器实例化，接口使用动态代理包装查询出的元组。
+ *
+ * @param <R>
+ *     投影类型。
+ */
+@Immutable
+final class ProjectionMapping<R> {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(ProjectionMapping.class).useCurrentLocale();
+
+    /**
+     * 投影类型。
+     */
+    @Nonnull
+    private final Class<R> type;
+
+    /**
+     * 投影的实体属性，按构造器参数的顺序排列。
+     */
+    @Nonnull
+    private final List<String> properties;
+
+    /**
+     * 接口投影时，getter 方法到实体属性的映射；否则为空。
+     */
+    @Nonnull
+    private final Map<Method, String> getters;
+
+    private ProjectionMapping(Class<R> type, List<String> properties, Map<Method, String> getters) {
+        this.type = type;
+        this.properties = Collections.unmodifiableList(properties);
+        this.getters = getters;
+    }
+
+    /**
+     * 分析投影类型，生成映射。
+     *
+     * @param type
+     *     投影类型。
+     * @return 映射。
+     * @throws IllegalArgumentException
+     *     不支持的投影类型。
+     */
+    @Nonnull
+    static <R> ProjectionMapping<R> of(@Nonnull Class<R> type) {
+        if (type.isRecord()) {
+            List<String> properties = new ArrayList<>();
+            for (RecordComponent component : type.getRecordComponents()) {
+                properties.add(component.getName());
+            }
+            return new ProjectionMapping<>(type, properties, Map.of());
+        }
+
+        if (type.isInterface()) {
+            List<String> properties = new ArrayList<>();
+            Map<Method, String> getters = new HashMap<>();
+            for (Method method : type.getMethods()) {
+                if (method.isDefault() || Modifier.isStatic(method.getModifiers())) {
+                    continue;
+                }
+                String property = getPropertyName(method);
+                if (property == null) {
+                    throw new IllegalArgumentException(RBMF.format("投影接口 {0} 的方法 {1} 不是 getter 方法", type.getName(), method.getName()));
+                }
+                if (!properties.contains(property)) {
+                    properties.add(property);
+                }
+                getters.put(method, property);
+            }
+            return new ProjectionMapping<>(type, properties, getters);
+        }
+
+        Constructor<?>[] constructors = type.getConstructors();
+        if (constructors.length != 1) {
+            throw new IllegalArgumentException(RBMF.format("投影类 {0} 应该只有一个公共构造器", type.getName()));
+        }
+        List<String> properties = new ArrayList<>();
+        for (Parameter parameter : constructors[0].getParameters()) {
+            if (!parameter.isNamePresent()) {
+                throw new IllegalArgumentException(RBMF.format("投影类 {0} 编译时没有保留构造器参数名", type.getName()));
+            }
+            properties.add(parameter.getName());
+        }
+        return new ProjectionMapping<>(type, properties, Map.of());
+    }
+
+    /**
+     * 从 getter 方法名获取属性名，不是 getter 方法时返回 null。
+     */
+    private static String getPropertyName(Method method) {
+        if (method.getParameterCount() != 0 || method.getReturnType() == void.class) {
+            return null;
+        }
+
+        String name = method.getName();
+        if (name.startsWith("get") && name.length() > 3) {
+            return Introspector.decapitalize(name.substring(3));
+        }
+        if (name.startsWith("is") && name.length() > 2 && method.getReturnType() == boolean.class) {
+            return Introspector.decapitalize(name.substring(2));
+        }
+        return null;
+    }
+
+    /**
+     * 获取投影类型。
+     */
+    @Nonnull
+    Class<R> getType() {
+        return type;
+    }
+
+    /**
+     * 获取投影的实体属性。
+     */
+    @Nonnull
+    List<String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * 判断是否接口投影，接口投影查询元组，否则查询投影类型。
+     */
+    boolean isInterface() {
+        return type.isInterface();
+    }
+
+    /**
+     * 生成接口投影的选择项，为以属性名为别名的元组。
+     *
+     * @param criteriaBuilder
+     *     查询构建器。
+     * @param root
+     *     查询根。
+     * @return 选择项。
+     */
+    @Nonnull
+    Selection<Tuple> createTupleSelection(@Nonnull CriteriaBuilder criteriaBuilder, @Nonnull Root<?> root) {
+        return criteriaBuilder.tuple(createSelections(root));
+    }
+
+    /**
+     * 生成记录类和普通类投影的选择项，为构造器调用。
+     *
+     * @param criteriaBuilder
+     *     查询构建器。
+     * @param root
+     *     查询根。
+     * @return 选择项。
+     */
+    @Nonnull
+    Selection<R> createConstructorSelection(@Nonnull CriteriaBuilder criteriaBuilder, @Nonnull Root<?> root) {
+        return criteriaBuilder.construct(type, createSelections(root));
+    }
+
+    /**
+     * 生成各属性的选择项，以属性名为别名。
+     */
+    private Selection<?>[] createSelections(Root<?> root) {
+        Selection<?>[] selections = new Selection<?>[properties.size()];
+        for (int i = 0; i < selections.length; ++i) {
+            String property = properties.get(i);
+            selections[i] = root.get(property).alias(property);
+        }
+        return selections;
+    }
+
+    /**
+     * 把查询结果转换为投影类型。
+     *
+     * @param rows
+     *     查询结果。
+     * @return 投影对象集合。
+     */
+    @Nonnull
+    List<R> map(@Nonnull List<?> rows) {
+        List<R> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            if (type.isInterface()) {
+                result.add(toProxy((Tuple) row));
+            } else {
+                result.add(type.cast(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 把元组包装为接口投影的动态代理。
+     */
+    private R toProxy(Tuple tuple) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String property : properties) {
+            values.put(property, tuple.get(property));
+        }
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {
+            type
+        }, (instance, method, args) -> {
+            String property = getters.get(method);
+            if (property != null) {
+                return values.get(property);
+            }
+            if (method.isDefault()) {
+                return InvocationHandler.invokeDefault(instance, method, args);
+            }
+            switch (method.getName()) {
+                case "equals":
+                    return instance == args[0];
+                case "hashCode":
+                    return System.identityHashCode(instance);
+                case "toString":
+                    return type.getSimpleName() + values;
+                default:
+                    throw new UnsupportedOperationException(method.toString());
+            }
+        });
+        return type.cast(proxy);
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.hibernate.Session;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 查询批次，收集多个互不依赖的只读查询，在各自的会话中并发执行，总耗时接近最慢的单个查询。
+ * 每个查询使用独立的只读会话，不参与当前线程的事务，看不到当前事务中未提交的修改。
+ * 查询使用加入时当前线程的查询选项（见 {@link HibernateHelper#withQueryOptions(QueryOptions, java.util.function.Supplier)}）。
+ * 每个批次只能执行一次。
+ */
+@NotThreadSafe
+public final class QueryBatch {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(QueryBatch.class).useCurrentLocale();
+
+    /**
+     * {@link #execute()} 共用的执行器最大线程数。
+     */
+    private static final int MAX_SHARED_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * {@link #execute()} 共用的执行器，线程空闲一分钟后回收，线程用尽时在提交查询的线程中执行。
+     */
+    private static final Executor SHARED_EXECUTOR = new ThreadPoolExecutor(0, MAX_SHARED_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+        runnable -> {
+            Thread thread = new Thread(runnable, "QueryBatch");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+    /**
+     * 会话工厂管理器。
+     */
+    @Nonnull
+    private final SessionFactoryManager sessionFactoryManager;
+
+    /**
+     * 待执行的查询。
+     */
+    @Nonnull
+    private final List<Runnable> queries;
+
+    /**
+     * 是否已执行。
+     */
+    private boolean executed;
+
+    /**
+     * 构造器，使用默认会话工厂。
+     */
+    public QueryBatch() {
+        this(SessionFactoryManager.getInstance());
+    }
+
+    /**
+     * 构造器，使用指定名称的会话工厂。
+     *
+     * @param sessionFactoryName
+     *     会话工厂名称。
+     */
+    public QueryBatch(@Nonnull String sessionFactoryName) {
+        this(SessionFactoryManager.getInstance(sessionFactoryName));
+    }
+
+    /**
+     * 构造器，使用指定会话工厂管理器。
+     *
+     * @param sessionFactoryManager
+     *     会话工厂管理器。
+     */
+    public QueryBatch(@Nonnull SessionFactoryManager sessionFactoryManager) {
+        this.sessionFactoryManager = sessionFactoryManager;
+        this.queries = new ArrayList<>();
+    }
+
+    /**
+     * 加入一个查询，查询执行时使用当前线程的查询选项。
+     *
+     * @param query
+     *     查询，参数为只读会话。
+     * @return 查询结果，批次执行后完成。
+     * @throws IllegalStateException
+     *     批次已执行。
+     */
+    @Nonnull
+    public <T> CompletableFuture<T> add(@Nonnull Function<Session, T> query) {
+        if (executed) {
+            throw new IllegalStateException(RBMF.get("查询批次已执行"));
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        QueryOptions options = HibernateHelper.getQueryOptions();
+        queries.add(() -> {
+            try (Session session = sessionFactoryManager.createSession()) {
+                session.setDefaultReadOnly(true);
+                future.complete(HibernateHelper.withQueryOptions(options, () -> query.apply(session)));
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 加入一个 HQL 查询，获取对象列表。
+     */
+    @Nonnull
+    public CompletableFuture<List<?>> queryAll(@Nonnull String queryString, Object... params) {
+        return this.<List<?>>add(session -> HibernateHelper.queryAll(session, queryString, params));
+    }
+
+    /**
+     * 加入一个 HQL 查询，获取对象列表。
+     */
+    @Nonnull
+    public CompletableFuture<List<?>> queryAll(@Nonnull String queryString, @Nonnull Map<String, ?> params) {
+        return this.<List<?>>add(session -> HibernateHelper.queryAll(session, queryString, params));
+    }
+
+    /**
+     * 加入一个 HQL 查询，获取整型返回值。
+     */
+    @Nonnull
+    public CompletableFuture<Long> queryCount(@Nonnull String queryString, Object... params) {
+        return add(session -> HibernateHelper.queryCount(session, queryString, params));
+    }
+
+    /**
+     * 加入一个 HQL 查询，获取整型返回值。
+     */
+    @Nonnull
+    public CompletableFuture<Long> queryCount(@Nonnull String queryString, @Nonnull Map<String, ?> params) {
+        return add(session -> HibernateHelper.queryCount(session, queryString, params));
+    }
+
+    /**
+     * 加入一个 SQL 查询，获取映射列表。
+     */
+    @Nonnull
+    public CompletableFuture<List<Map<String, Object>>> querySQLAsMap(@Nonnull String sql, Object... params) {
+        return add(session -> HibernateHelper.querySQLAsMap(session, sql, params));
+    }
+
+    /**
+     * 加入一个 SQL 查询，获取映射列表。
+     */
+    @Nonnull
+    public CompletableFuture<List<Map<String, Object>>> querySQLAsMap(@Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return add(session -> HibernateHelper.querySQLAsMap(session, sql, params));
+    }
+
+    /**
+     * 加入一个统计 SQL 查询，获取第一行第一列的值。
+     */
+    @Nonnull
+    public CompletableFuture<Long> querySQLCount(@Nonnull String sql, Object... params) {
+        return add(session -> HibernateHelper.querySQLCount(session, sql, params));
+    }
+
+    /**
+     * 加入一个统计 SQL 查询，获取第一行第一列的值。
+     */
+    @Nonnull
+    public CompletableFuture<Long> querySQLCount(@Nonnull String sql, @Nonnull Map<String, ?> params) {
+        return add(session -> HibernateHelper.querySQLCount(session, sql, params));
+    }
+
+    /**
+     * 获取查询数量。
+     */
+    public int size() {
+        return queries.size();
+    }
+
+    /**
+     * 使用指定执行器并发执行所有查询，不等待完成。
+     * 执行器应为应用共用的有界线程池，由调用者管理其生命周期。
+     * 单个查询失败时对应的结果以异常完成，不影响其它查询。
+     *
+     * @param executor
+     *     执行器。
+     * @return 所有查询完成时完成。
+     * @throws IllegalStateException
+     *     批次已执行。
+     */
+    @Nonnull
+    public CompletableFuture<Void> execute(@Nonnull Executor executor) {
+        if (executed) {
+            throw new IllegalStateException(RBMF.get("查询批次已执行"));
+        }
+        executed = true;
+        // 在当前线程建立会话工厂，避免多个线程同时建立
+        sessionFactoryManager.getSessionFactory();
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[queries.size()];
+        for (int i = 0; i < futures.length; ++i) {
+            futures[i] = CompletableFuture.runAsync(queries.get(i), executor);
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * 并发执行所有查询，等待全部完成。最后一个查询在当前线程执行，其它查询使用所有批次共用的有界线程池，
+     * 线程用尽时在当前线程执行。需要控制并发度时使用 {@link #execute(Executor)}。
+     * 单个查询失败时对应的结果以异常完成，不影响其它查询。
+     *
+     * @throws IllegalStateException
+     *     批次已执行。
+     */
+    public void execute() {
+        if (executed) {
+            throw new IllegalStateException(RBMF.get("查询批次已执行"));
+        }
+        if (queries.size() <= 1) {
+            executed = true;
+            queries.forEach(Runnable::run);
+            return;
+        }
+
+        Runnable last = queries.remove(queries.size() - 1);
+        CompletableFuture<Void> others = execute(SHARED_EXECUTOR);
+        last.run();
+        others.join();
+    }
+}
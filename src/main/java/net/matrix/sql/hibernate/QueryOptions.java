@@ -0,0 +1,242 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.hibernate.FlushMode;
+import org.hibernate.query.CommonQueryContract;
+import org.hibernate.query.SelectionQuery;
+
+/**
+ * 查询选项，包括 JDBC 抓取行数、查询超时、只读、查询缓存和刷新模式，统一应用于 HQL 查询和原生 SQL 语句。
+ * 没有设置的选项保持 Hibernate 或 JDBC 驱动的默认值。只读、查询缓存和刷新模式只应用于 HQL 查询。
+ */
+@Immutable
+public final class QueryOptions {
+    /**
+     * 没有设置任何选项。
+     */
+    public static final QueryOptions DEFAULT = new QueryOptions(0, null, null, false, null, null);
+
+    /**
+     * JDBC 抓取行数，0 表示没有设置。
+     */
+    private final int fetchSize;
+
+    /**
+     * 查询超时。
+     */
+    @Nullable
+    private final Duration timeout;
+
+    /**
+     * 是否只读。
+     */
+    @Nullable
+    private final Boolean readOnly;
+
+    /**
+     * 是否使用查询缓存。
+     */
+    private final boolean cacheable;
+
+    /**
+     * 查询缓存区域。
+     */
+    @Nullable
+    private final String cacheRegion;
+
+    /**
+     * 刷新模式。
+     */
+    @Nullable
+    private final FlushMode flushMode;
+
+    private QueryOptions(int fetchSize, Duration timeout, Boolean readOnly, boolean cacheable, String cacheRegion, FlushMode flushMode) {
+        this.fetchSize = fetchSize;
+        this.timeout = timeout;
+        this.readOnly = readOnly;
+        this.cacheable = cacheable;
+        this.cacheRegion = cacheRegion;
+        this.flushMode = flushMode;
+    }
+
+    /**
+     * 获取 JDBC 抓取行数，0 表示没有设置。
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * 设置 JDBC 抓取行数。
+     *
+     * @param newFetchSize
+     *     JDBC 抓取行数，0 表示使用驱动的默认值。
+     * @return 新的查询选项。
+     */
+    @Nonnull
+    public QueryOptions withFetchSize(int newFetchSize) {
+        return new QueryOptions(Math.max(newFetchSize, 0), timeout, readOnly, cacheable, cacheRegion, flushMode);
+    }
+
+    /**
+     * 获取查询超时。
+     */
+    @Nullable
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * 设置查询超时，按秒向上取整。
+     *
+     * @param newTimeout
+     *     查询超时，为 null 时不限制。
+     * @return 新的查询选项。
+     */
+    @Nonnull
+    public QueryOptions withTimeout(@Nullable Duration newTimeout) {
+        return new QueryOptions(fetchSize, newTimeout, readOnly, cacheable, cacheRegion, flushMode);
+    }
+
+    /**
+     * 获取是否只读，为 null 时使用会话的设置。
+     */
+    @Nullable
+    public Boolean getReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * 设置是否只读，只读查询加载的实体不做脏检查。
+     *
+     * @param newReadOnly
+     *     是否只读，为 null 时使用会话的设置。
+     * @return 新的查询选项。
+     */
+    @Nonnull
+    public QueryOptions withReadOnly(@Nullable Boolean newReadOnly) {
+        return new QueryOptions(fetchSize, timeout, newReadOnly, cacheable, cacheRegion, flushMode);
+    }
+
+    /**
+     * 获取是否使用查询缓存。
+     */
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    /**
+     * 获取查询缓存区域。
+     */
+    @Nullable
+    public String getCacheRegion() {
+        return cacheRegion;
+    }
+
+    /**
+     * 设置使用 Hibernate 查询缓存。
+     *
+     * @param newCacheRegion
+     *     查询缓存区域，为 null 时使用默认区域。
+     * @return 新的查询选项。
+     */
+    @Nonnull
+    public QueryOptions withCache(@Nullable String newCacheRegion) {
+        return new QueryOptions(fetchSize, timeout, readOnly, true, newCacheRegion, flushMode);
+    }
+
+    /**
+     * 获取刷新模式。
+     */
+    @Nullable
+    public FlushMode getFlushMode() {
+        return flushMode;
+    }
+
+    /**
+     * 设置刷新模式。
+     *
+     * @param newFlushMode
+     *     刷新模式，为 null 时使用会话的设置。
+     * @return 新的查询选项。
+     */
+    @Nonnull
+    public QueryOptions withFlushMode(@Nullable FlushMode newFlushMode) {
+        return new QueryOptions(fetchSize, timeout, readOnly, cacheable, cacheRegion, newFlushMode);
+    }
+
+    /**
+     * 应用于 HQL 查询或修改语句。
+     *
+     * @param query
+     *     HQL 查询或修改语句。
+     */
+    void applyTo(@Nonnull CommonQueryContract query) {
+        if (timeout != null) {
+            query.setTimeout(getTimeoutSeconds());
+        }
+        if (flushMode != null) {
+            query.setHibernateFlushMode(flushMode);
+        }
+        if (query instanceof SelectionQuery<?> selectionQuery) {
+            if (fetchSize > 0) {
+                selectionQuery.setFetchSize(fetchSize);
+            }
+            if (readOnly != null) {
+                selectionQuery.setReadOnly(readOnly);
+            }
+            if (cacheable) {
+                selectionQuery.setCacheable(true);
+                if (cacheRegion != null) {
+                    selectionQuery.setCacheRegion(cacheRegion);
+                }
+            }
+        }
+    }
+
+    /**
+     * 应用于 JDBC 语句，只设置已设置的选项。复用的语句由 {@link NativeStatementCache} 放回时恢复原有设置。
+     *
+     * @param statement
+     *     JDBC 语句。
+     * @throws SQLException
+     *     设置失败。
+     */
+    void applyTo(@Nonnull Statement statement)
+        throws SQLException {
+        if (fetchSize > 0) {
+            statement.setFetchSize(fetchSize);
+        }
+        if (timeout != null) {
+            statement.setQueryTimeout(getTimeoutSeconds());
+        }
+    }
+
+    /**
+     * 获取按秒向上取整的查询超时。
+     */
+    private int getTimeoutSeconds() {
+        long seconds = timeout.toSeconds();
+        if (timeout.toNanosPart() > 0) {
+            ++seconds;
+        }
+        return (int) Math.min(Math.max(seconds, 1), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryOptions[fetchSize=" + fetchSize + ", timeout=" + timeout + ", readOnly=" + readOnly + ", cacheable=" + cacheable + ", cacheRegion="
+            + cacheRegion + ", flushMode=" + flushMode + "]";
+    }
+}
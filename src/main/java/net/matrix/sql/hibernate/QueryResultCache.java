@@ -0,0 +1,643 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.metamodel.MappingMetamodel;
+import org.hibernate.metamodel.model.domain.EntityDomainType;
+import org.hibernate.metamodel.model.domain.PluralPersistentAttribute;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.SelectionQuery;
+import org.hibernate.query.sqm.SqmSelectionQuery;
+import org.hibernate.query.sqm.tree.SqmStatement;
+import org.hibernate.query.sqm.tree.domain.SqmPath;
+import org.hibernate.query.sqm.tree.select.SqmDynamicInstantiation;
+import org.hibernate.query.sqm.tree.select.SqmDynamicInstantiationArgument;
+import org.hibernate.query.sqm.tree.select.SqmJpaCompoundSelection;
+import org.hibernate.query.sqm.tree.select.SqmSelectStatement;
+import org.hibernate.query.sqm.tree.select.SqmSelectableNode;
+import org.hibernate.query.sqm.tree.select.SqmSelection;
+import org.hibernate.type.descriptor.java.spi.EntityJavaType;
+
+/**
+ * 本地查询结果缓存，按会话工厂、查询语句和参数缓存 {@link HibernateHelper} 读方法的结果，按数量和存活时间淘汰。
+ * {@link HibernateHelper} 的写方法按实体名和表名使缓存失效：查询语句中出现了被修改的实体名或表名的缓存项被移除，
+ * 无法确定修改目标时移除该会话工厂的所有缓存项。
+ * 会话刷新时执行了语句，视为修改了任意实体，使该会话工厂的所有缓存项失效。
+ * 执行过写操作或刷新过修改的会话在事务结束前不使用缓存，事务结束时再次使缓存失效。
+ * 缓存启用后会话工厂管理器建立的会话从建立时开始跟踪（见 {@link SessionFactoryManager#addSessionListener(Consumer)}）；
+ * 其它会话第一次使用缓存时如果事务已经开始，在该事务结束前不使用缓存。
+ * 不经过 {@link HibernateHelper} 也不经过会话刷新的修改，例如直接执行的原生修改语句、JDBC 语句和使用 IDENTITY 主键时立即执行的插入，不会被发现，
+ * 同一事务之后的查询结果可能包含未提交的数据并进入缓存，这样的事务应在修改后调用 {@link #invalidate(SessionFactory, String)}
+ * 或不使用 {@link HibernateHelper} 的读方法。
+ * 选择了实体的 HQL 查询不缓存，包括选择实体路径、实体集合和以实体为参数的构造表达式，实体对象属于加载它的会话，不能在会话之间共享。
+ * 缓存的列表不可修改，列表中的对象在调用者之间共享，应视为只读。
+ */
+@ThreadSafe
+public final class QueryResultCache {
+    /**
+     * SQL 或 HQL 中的标识符。
+     */
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*");
+
+    /**
+     * 修改语句的目标实体或表。
+     */
+    private static final Pattern MUTATION_TARGET_PATTERN = Pattern.compile(
+        "^\\s*(?:update|delete\\s+from|delete|insert\\s+into|merge\\s+into|truncate\\s+table)\\s+([A-Za-z0-9_$.\"`\\[\\]]+)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * 最多缓存项数量。
+     */
+    private final int maxSize;
+
+    /**
+     * 缓存项存活时间，单位纳秒。
+     */
+    private final long timeToLive;
+
+    /**
+     * 缓存项，按最近使用的顺序排列。
+     */
+    private final LinkedHashMap<Key, Entry> entries;
+
+    /**
+     * 失效次数，用于丢弃失效前开始加载的结果。
+     */
+    private final AtomicLong generation;
+
+    /**
+     * 命中次数。
+     */
+    private final AtomicLong hitCount;
+
+    /**
+     * 未命中次数。
+     */
+    private final AtomicLong missCount;
+
+    /**
+     * 使用过缓存的会话的写操作记录。
+     */
+    private final Map<SessionImplementor, PendingInvalidation> pendingInvalidations;
+
+    /**
+     * 会话工厂管理器建立会话时开始跟踪会话。
+     */
+    private final Consumer<Session> sessionListener;
+
+    /**
+     * 构造器。
+     *
+     * @param maxSize
+     *     最多缓存项数量。
+     * @param timeToLive
+     *     缓存项存活时间。
+     */
+    public QueryResultCache(int maxSize, @Nonnull Duration timeToLive) {
+        this.maxSize = Math.max(maxSize, 1);
+        this.timeToLive = timeToLive.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.generation = new AtomicLong();
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.pendingInvalidations = Collections.synchronizedMap(new WeakHashMap<>());
+        this.sessionListener = this::track;
+    }
+
+    /**
+     * 从缓存获取查询结果，没有缓存时加载并缓存。
+     *
+     * @param session
+     *     Hibernate 会话。
+     * @param kind
+     *     查询方法，区分结果类型不同的查询。
+     * @param query
+     *     查询语句，结果不包含实体对象。
+     * @param params
+     *     参数，可以是数组、集合或映射。
+     * @param loader
+     *     加载查询结果。
+     * @return 查询结果。
+     */
+    <T> T get(@Nonnull Session session, @Nonnull String kind, @Nonnull String query, Object params, @Nonnull Supplier<T> loader) {
+        return get(session, kind, query, params, false, loader);
+    }
+
+    /**
+     * 从缓存获取 HQL 查询结果，没有缓存时加载并缓存。查询选择了实体时直接加载，不使用缓存。
+     *
+     * @param session
+     *     Hibernate 会话。
+     * @param kind
+     *     查询方法，区分结果类型不同的查询。
+     * @param query
+     *     HQL 查询语句。
+     * @param params
+     *     参数，可以是数组、集合或映射。
+     * @param loader
+     *     加载查询结果。
+     * @return 查询结果。
+     */
+    <T> T getSelection(@Nonnull Session session, @Nonnull String kind, @Nonnull String query, Object params, @Nonnull Supplier<T> loader) {
+        return get(session, kind, query, params, true, loader);
+    }
+
+    /**
+     * 从缓存获取查询结果，没有缓存时加载并缓存。
+     *
+     * @param selection
+     *     是否是 HQL 查询，需要检查是否选择了实体。
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T get(Session session, String kind, String query, Object params, boolean selection, Supplier<T> loader) {
+        PendingInvalidation pending = track(session);
+        if (pending.isActive() || selection && selectsEntity(session, query)) {
+            return loader.get();
+        }
+
+        Key key = new Key(session.getSessionFactory(), kind, query, toKeyParams(params));
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.expireTime < 0) {
+                    hitCount.incrementAndGet();
+                    return (T) entry.value;
+                }
+                entries.remove(key);
+            }
+        }
+        missCount.incrementAndGet();
+
+        long startGeneration = generation.get();
+        T value = loader.get();
+        if (pending.isActive()) {
+            return value;
+        }
+        if (value instanceof List<?> list) {
+            value = (T) Collections.unmodifiableList(new ArrayList<>(list));
+        }
+        synchronized (entries) {
+            if (generation.get() == startGeneration) {
+                entries.put(key, new Entry(value, System.nanoTime() + timeToLive, getIdentifiers(query)));
+                if (entries.size() > maxSize) {
+                    Iterator<Entry> iterator = entries.values().iterator();
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 开始跟踪会话的写操作和刷新。
+     *
+     * @param session
+     *     Hibernate 会话。
+     * @return 会话的写操作记录。
+     */
+    @Nonnull
+    PendingInvalidation track(@Nonnull Session session) {
+        return pendingInvalidations.computeIfAbsent(session.unwrap(SessionImplementor.class), key -> {
+            PendingInvalidation listener = new PendingInvalidation(key.getSessionFactory(), key.getTransaction().isActive());
+            key.addEventListeners(listener);
+            return listener;
+        });
+    }
+
+    /**
+     * 获取会话工厂管理器建立会话时调用的监听器，开始跟踪会话的写操作和刷新。
+     */
+    @Nonnull
+    Consumer<Session> getSessionListener() {
+        return sessionListener;
+    }
+
+    /**
+     * 会话执行了修改语句，使语句目标相关的缓存失效。
+     *
+     * @param session
+     *     Hibernate 会话。
+     * @param statement
+     *     HQL 或 SQL 修改语句。
+     */
+    void invalidateStatement(@Nonnull Session session, @Nonnull String statement) {
+        Matcher matcher = MUTATION_TARGET_PATTERN.matcher(statement);
+        if (!matcher.find()) {
+            invalidateWrite(session, null);
+            return;
+        }
+        invalidateWrite(session, getRelatedNames(session.getSessionFactory(), normalizeName(matcher.group(1))));
+    }
+
+    /**
+     * 会话修改了实体，使实体相关的缓存失效。
+     *
+     * @param session
+     *     Hibernate 会话。
+     * @param entityClass
+     *     实体类。
+     */
+    void invalidateEntity(@Nonnull Session session, @Nonnull Class<?> entityClass) {
+        invalidateWrite(session, getRelatedNames(session.getSessionFactory(), entityClass.getSimpleName()));
+    }
+
+    /**
+     * 使查询语句中出现指定实体名或表名的缓存失效，用于不经过 {@link HibernateHelper} 的修改。
+     *
+     * @param sessionFactory
+     *     Hibernate 会话工厂。
+     * @param name
+     *     实体名或表名。
+     */
+    public void invalidate(@Nonnull SessionFactory sessionFactory, @Nonnull String name) {
+        invalidate(sessionFactory, getRelatedNames(sessionFactory, normalizeName(name)));
+    }
+
+    /**
+     * 清空缓存。
+     */
+    public void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    /**
+     * 获取缓存项数量。
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 获取命中次数。
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * 获取未命中次数。
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 获取命中率，没有访问时为 0。
+     */
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 使缓存失效，并记录会话的写操作，会话在事务结束前不使用缓存，事务结束时再次使缓存失效。
+     *
+     * @param names
+     *     实体名和表名，为 null 时使该会话工厂的所有缓存失效。
+     */
+    private void invalidateWrite(Session session, Set<String> names) {
+        invalidate(session.getSessionFactory(), names);
+        track(session).add(names);
+    }
+
+    /**
+     * 使会话工厂中查询语句出现指定名称的缓存失效。
+     *
+     * @param names
+     *     实体名和表名，为 null 时使该会话工厂的所有缓存失效。
+     */
+    private void invalidate(SessionFactory sessionFactory, Set<String> names) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.entrySet().removeIf(entry -> entry.getKey().sessionFactory == sessionFactory
+                && (names == null || !Collections.disjoint(entry.getValue().identifiers, names)));
+        }
+    }
+
+    /**
+     * 判断 HQL 查询是否选择了实体，无法解析的查询视为选择了实体。
+     */
+    private static boolean selectsEntity(Session session, String query) {
+        SqmStatement<?> statement;
+        try {
+            SelectionQuery<?> selectionQuery = session.createSelectionQuery(query, Object.class);
+            if (!(selectionQuery instanceof SqmSelectionQuery<?> sqmQuery)) {
+                return true;
+            }
+            statement = sqmQuery.getSqmStatement();
+        } catch (RuntimeException e) {
+            return true;
+        }
+        if (!(statement instanceof SqmSelectStatement<?> selectStatement)) {
+            return true;
+        }
+        for (SqmSelection<?> selection : selectStatement.getQueryPart().getFirstQuerySpec().getSelectClause().getSelections()) {
+            if (isEntityNode(selection.getSelectableNode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断选择项是否是实体、实体集合，或包含实体的构造表达式和复合选择。
+     */
+    private static boolean isEntityNode(SqmSelectableNode<?> node) {
+        if (node instanceof SqmDynamicInstantiation<?> instantiation) {
+            for (SqmDynamicInstantiationArgument<?> argument : instantiation.getArguments()) {
+                if (isEntityNode(argument.getSelectableNode())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (node instanceof SqmJpaCompoundSelection<?> compound) {
+            for (SqmSelectableNode<?> item : compound.getSelectionItems()) {
+                if (isEntityNode(item)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (node instanceof SqmPath<?> path && path.getReferencedPathSource() instanceof PluralPersistentAttribute<?, ?, ?> attribute) {
+            return attribute.getElementType() instanceof EntityDomainType<?>;
+        }
+        return node.getJavaTypeDescriptor() instanceof EntityJavaType<?>;
+    }
+
+    /**
+     * 获取与实体名或表名相关的所有实体名和表名，包括同一继承结构中共用表的实体。
+     */
+    private static Set<String> getRelatedNames(SessionFactory sessionFactory, String name) {
+        Set<String> names = new HashSet<>();
+        names.add(name.toUpperCase(Locale.ROOT));
+        MappingMetamodel metamodel = sessionFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel();
+
+        Set<String> tables = new HashSet<>();
+        metamodel.forEachEntityDescriptor(persister -> {
+            Set<String> spaces = getTableNames(persister);
+            if (names.contains(getSimpleName(persister)) || names.contains(persister.getEntityName().toUpperCase(Locale.ROOT))
+                || !Collections.disjoint(spaces, names)) {
+                tables.addAll(spaces);
+            }
+        });
+        names.addAll(tables);
+        metamodel.forEachEntityDescriptor(persister -> {
+            if (!Collections.disjoint(getTableNames(persister), tables)) {
+                names.add(getSimpleName(persister));
+            }
+        });
+        return names;
+    }
+
+    /**
+     * 获取实体的简单名称，大写。
+     */
+    private static String getSimpleName(EntityPersister persister) {
+        String entityName = persister.getEntityName();
+        return entityName.substring(entityName.lastIndexOf('.') + 1).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * 获取实体使用的表名，不包括模式名，大写。
+     */
+    private static Set<String> getTableNames(EntityPersister persister) {
+        Set<String> tables = new HashSet<>();
+        for (String space : persister.getPropertySpaces()) {
+            tables.add(normalizeName(space).toUpperCase(Locale.ROOT));
+        }
+        return tables;
+    }
+
+    /**
+     * 去掉名称中的模式名和引号。
+     */
+    private static String normalizeName(String name) {
+        String result = name.substring(name.lastIndexOf('.') + 1);
+        return result.replaceAll("[\"`\\[\\]]", "");
+    }
+
+    /**
+     * 获取查询语句中的所有标识符，大写。
+     */
+    private static Set<String> getIdentifiers(String query) {
+        Set<String> identifiers = new HashSet<>();
+        Matcher matcher = IDENTIFIER_PATTERN.matcher(query);
+        while (matcher.find()) {
+            identifiers.add(matcher.group().toUpperCase(Locale.ROOT));
+        }
+        return identifiers;
+    }
+
+    /**
+     * 把参数转换为可以比较的缓存键。
+     */
+    private static Object toKeyParams(Object params) {
+        if (params == null) {
+            return List.of();
+        }
+        if (params instanceof Object[] array) {
+            return Arrays.asList(array.clone());
+        }
+        if (params instanceof Map<?, ?> map) {
+            return new HashMap<>(map);
+        }
+        if (params instanceof Iterable<?> iterable) {
+            List<Object> list = new ArrayList<>();
+            iterable.forEach(list::add);
+            return list;
+        }
+        return params;
+    }
+
+    /**
+     * 缓存键。
+     */
+    private record Key(SessionFactory sessionFactory, String kind, String query, Object params) {
+    }
+
+    /**
+     * 缓存项。
+     */
+    private record Entry(Object value, long expireTime, Set<String> identifiers) {
+    }
+
+    /**
+     * 会话中尚未结束的事务修改过的实体名和表名，事务结束或会话关闭时再次使缓存失效。
+     * 会话刷新时执行了语句视为修改了任意实体。
+     */
+    final class PendingInvalidation
+        implements SessionEventListener {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Hibernate 会话工厂。
+         */
+        private final transient SessionFactory sessionFactory;
+
+        /**
+         * 修改过的实体名和表名。
+         */
+        private final Set<String> names = new HashSet<>();
+
+        /**
+         * 是否修改了无法确定的目标。
+         */
+        private boolean all;
+
+        /**
+         * 是否有尚未结束的修改。
+         */
+        private boolean active;
+
+        /**
+         * 开始跟踪前事务已经开始，无法确定事务中是否有修改。
+         */
+        private boolean untracked;
+
+        /**
+         * 正在进行的刷新层数。
+         */
+        private int flushDepth;
+
+        /**
+         * 当前刷新是否执行了语句。
+         */
+        private boolean flushExecuted;
+
+        PendingInvalidation(SessionFactory sessionFactory, boolean untracked) {
+            this.sessionFactory = sessionFactory;
+            this.untracked = untracked;
+        }
+
+        synchronized boolean isActive() {
+            return active || untracked;
+        }
+
+        synchronized void add(Set<String> modifiedNames) {
+            active = true;
+            if (modifiedNames == null) {
+                all = true;
+            } else {
+                names.addAll(modifiedNames);
+            }
+        }
+
+        /**
+         * 再次使修改过的缓存失效，并清除记录。
+         */
+        private void complete() {
+            Set<String> modifiedNames;
+            synchronized (this) {
+                untracked = false;
+                if (!active) {
+                    return;
+                }
+                modifiedNames = all ? null : new HashSet<>(names);
+                names.clear();
+                all = false;
+                active = false;
+            }
+            invalidate(sessionFactory, modifiedNames);
+        }
+
+        private synchronized void startFlush() {
+            ++flushDepth;
+        }
+
+        private void endFlush() {
+            synchronized (this) {
+                flushDepth = Math.max(flushDepth - 1, 0);
+                if (flushDepth > 0 || !flushExecuted) {
+                    return;
+                }
+                flushExecuted = false;
+            }
+            invalidate(sessionFactory, (Set<String>) null);
+            add(null);
+        }
+
+        private synchronized void statementExecuted() {
+            if (flushDepth > 0) {
+                flushExecuted = true;
+            }
+        }
+
+        @Override
+        public void flushStart() {
+            startFlush();
+        }
+
+        @Override
+        public void flushEnd(int numberOfEntities, int numberOfCollections) {
+            endFlush();
+        }
+
+        @Override
+        public void partialFlushStart() {
+            startFlush();
+        }
+
+        @Override
+        public void partialFlushEnd(int numberOfEntities, int numberOfCollections) {
+            endFlush();
+        }
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            statementExecuted();
+        }
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            statementExecuted();
+        }
+
+        @Override
+        public void transactionCompletion(boolean successful) {
+            complete();
+        }
+
+        @Override
+        public void end() {
+            complete();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.apache.commons.dbutils.BasicRowProcessor;
+import org.apache.commons.dbutils.RowProcessor;
+import org.hibernate.exception.GenericJDBCException;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 结果集当前行的视图，逐行读取时复用同一个对象，列信息只在创建时读取一次。
+ * 视图随结果集移动，需要在回调之外保留数据时使用 {@link #toMap()} 复制。
+ * 读取失败时抛出 {@link GenericJDBCException}。
+ */
+@NotThreadSafe
+public final class ResultSetRow {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(ResultSetRow.class).useCurrentLocale();
+
+    /**
+     * 复制当前行使用的行处理器，与 {@link HibernateHelper} 的映射查询一致。
+     */
+    private static final RowProcessor ROW_PROCESSOR = new BasicRowProcessor();
+
+    /**
+     * 结果集。
+     */
+    @Nonnull
+    private final ResultSet resultSet;
+
+    /**
+     * 列名，按列的顺序排列。
+     */
+    @Nonnull
+    private final String[] columnLabels;
+
+    /**
+     * 列名到列序号的映射，不区分大小写。
+     */
+    @Nonnull
+    private final Map<String, Integer> columnIndexes;
+
+    /**
+     * 构造器，读取结果集的列信息。
+     *
+     * @param resultSet
+     *     结果集。
+     * @throws SQLException
+     *     读取列信息失败。
+     */
+    public ResultSetRow(@Nonnull ResultSet resultSet)
+        throws SQLException {
+        this.resultSet = resultSet;
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        this.columnLabels = new String[columnCount];
+        this.columnIndexes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int column = 1; column <= columnCount; ++column) {
+            String label = metaData.getColumnLabel(column);
+            if (label == null || label.isEmpty()) {
+                label = metaData.getColumnName(column);
+            }
+            columnLabels[column - 1] = label;
+            columnIndexes.putIfAbsent(label, column);
+        }
+    }
+
+    /**
+     * 把结果集移动到下一行。
+     *
+     * @return 是否有下一行。
+     */
+    boolean next() {
+        try {
+            return resultSet.next();
+        } catch (SQLException e) {
+            throw new GenericJDBCException(RBMF.get("读取结果集失败"), e);
+        }
+    }
+
+    /**
+     * 获取列数。
+     */
+    public int getColumnCount() {
+        return columnLabels.length;
+    }
+
+    /**
+     * 获取列名。
+     *
+     * @param column
+     *     列序号，从 1 开始。
+     * @return 列名。
+     */
+    @Nonnull
+    public String getColumnLabel(int column) {
+        return columnLabels[column - 1];
+    }
+
+    /**
+     * 获取列序号。
+     *
+     * @param label
+     *     列名，不区分大小写。
+     * @return 列序号，从 1 开始。
+     * @throws IllegalArgumentException
+     *     没有该列。
+     */
+    public int getColumnIndex(@Nonnull String label) {
+        Integer column = columnIndexes.get(label);
+        if (column == null) {
+            throw new IllegalArgumentException(RBMF.format("结果集中没有列 {0}", label));
+        }
+        return column;
+    }
+
+    /**
+     * 获取当前行指定列的值。
+     *
+     * @param column
+     *     列序号，从 1 开始。
+     * @return 值。
+     */
+    @Nullable
+    public Object getObject(int column) {
+        try {
+            return resultSet.getObject(column);
+        } catch (SQLException e) {
+            throw new GenericJDBCException(RBMF.format("读取第 {0} 列失败", column), e);
+        }
+    }
+
+    /**
+     * 获取当前行指定列的值。
+     *
+     * @param label
+     *     列名，不区分大小写。
+     * @return 值。
+     */
+    @Nullable
+    public Object getObject(@Nonnull String label) {
+        return getObject(getColumnIndex(label));
+    }
+
+    /**
+     * 获取当前行指定列的值，转换为指定类型。
+     *
+     * @param column
+     *     列序号，从 1 开始。
+     * @param type
+     *     类型。
+     * @return 值。
+     */
+    @Nullable
+    public <T> T getObject(int column, @Nonnull Class<T> type) {
+        try {
+            return resultSet.getObject(column, type);
+        } catch (SQLException e) {
+            throw new GenericJDBCException(RBMF.format("读取第 {0} 列失败", column), e);
+        }
+    }
+
+    /**
+     * 获取当前行指定列的值，转换为指定类型。
+     *
+     * @param label
+     *     列名，不区分大小写。
+     * @param type
+     *     类型。
+     * @return 值。
+     */
+    @Nullable
+    public <T> T getObject(@Nonnull String label, @Nonnull Class<T> type) {
+        return getObject(getColumnIndex(label), type);
+    }
+
+    /**
+     * 把当前行复制为列名到值的映射，按列的顺序排列，列名不区分大小写，与 {@link HibernateHelper} 的映射查询返回的行相同。
+     *
+     * @return 映射。
+     */
+    @Nonnull
+    public Map<String, Object> toMap() {
+        try {
+            return ROW_PROCESSOR.toMap(resultSet);
+        } catch (SQLException e) {
+            throw new GenericJDBCException(RBMF.get("读取结果集失败"), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ResultSetRow" + toMap();
+    }
+}
@@ -5,8 +5,18 @@
 package net.matrix.sql.hibernate;
 
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -51,6 +61,11 @@ public final class SessionFactoryManager
      */
     private static final Map<String, SessionFactoryManager> INSTANCES = new ConcurrentHashMap<>();
 
+    /**
+     * 所有实例建立会话时调用的监听器。
+     */
+    private static final List<Consumer<Session>> SESSION_LISTENERS = new CopyOnWriteArrayList<>();
+
     /**
      * 实例名称。
      */
@@ -81,6 +96,30 @@ public final class SessionFactoryManager
     @Nonnull
     private final ThreadLocal<HibernateTransactionContext> threadContext;
 
+    /**
+     * 已建立 Hibernate 会话的事务上下文。
+     */
+    @Nonnull
+    private final Set<HibernateTransactionContext> transactionContexts;
+
+    /**
+     * 已回收的事务上下文数量。
+     */
+    @Nonnull
+    private final AtomicLong reapedTransactionContextCount;
+
+    /**
+     * 事务重试次数。
+     */
+    @Nonnull
+    private final AtomicLong transactionRetryCount;
+
+    /**
+     * 事务上下文回收任务执行器。
+     */
+    @Nullable
+    private ScheduledExecutorService transactionContextReaper;
+
     /**
      * 获取默认名称实例。
      *
@@ -176,16 +215,42 @@ public final class SessionFactoryManager
         INSTANCES.clear();
     }
 
+    /**
+     * 添加会话监听器，所有实例的 {@link #createSession()} 建立会话后调用。
+     *
+     * @param listener
+     *     会话监听器。
+     */
+    public static void addSessionListener(@Nonnull Consumer<Session> listener) {
+        SESSION_LISTENERS.add(listener);
+    }
+
+    /**
+     * 移除会话监听器。
+     *
+     * @param listener
+     *     会话监听器。
+     */
+    public static void removeSessionListener(@Nonnull Consumer<Session> listener) {
+        SESSION_LISTENERS.remove(listener);
+    }
+
     private SessionFactoryManager(@Nonnull String name) {
         this.name = name;
         this.configResource = null;
         this.threadContext = new ThreadLocal<>();
+        this.transactionContexts = ConcurrentHashMap.newKeySet();
+        this.reapedTransactionContextCount = new AtomicLong();
+        this.transactionRetryCount = new AtomicLong();
     }
 
     private SessionFactoryManager(@Nonnull String name, @Nullable String configResource) {
         this.name = name;
         this.configResource = configResource;
         this.threadContext = new ThreadLocal<>();
+        this.transactionContexts = ConcurrentHashMap.newKeySet();
+        this.reapedTransactionContextCount = new AtomicLong();
+        this.transactionRetryCount = new AtomicLong();
     }
 
     /**
@@ -206,6 +271,7 @@ public final class SessionFactoryManager
 
     @Override
     public void reset() {
+        stopTransactionContextReaper();
         if (sessionFactory != null) {
             try {
                 sessionFactory.close();
@@ -255,13 +321,17 @@ public final class SessionFactoryManager
     }
 
     /**
-     * 使用 Hibernate 会话工厂建立 Hibernate 会话。
+     * 使用 Hibernate 会话工厂建立 Hibernate 会话，并调用会话监听器。
      *
      * @return Hibernate 会话。
      */
     @Nonnull
     public Session createSession() {
-        return getSessionFactory().openSession();
+        Session session = getSessionFactory().openSession();
+        for (Consumer<Session> listener : SESSION_LISTENERS) {
+            listener.accept(session);
+        }
+        return session;
     }
 
     /**
@@ -295,6 +365,171 @@ public final class SessionFactoryManager
         }
     }
 
+    /**
+     * 登记已建立 Hibernate 会话的事务上下文。
+     * 同时回收所属线程已结束的事务上下文，没有启动回收任务时，已结束的线程也不会一直占用 Hibernate 会话。
+     *
+     * @param context
+     *     事务上下文。
+     */
+    void registerTransactionContext(@Nonnull HibernateTransactionContext context) {
+        for (HibernateTransactionContext other : transactionContexts) {
+            Thread owner = other.getSessionOwner();
+            if (other.getSessionCreateTime() != null && (owner == null || !owner.isAlive())) {
+                releaseEndedTransactionContext(other, owner);
+            }
+        }
+        transactionContexts.add(context);
+    }
+
+    /**
+     * 注销已释放 Hibernate 会话的事务上下文。
+     *
+     * @param context
+     *     事务上下文。
+     */
+    void unregisterTransactionContext(@Nonnull HibernateTransactionContext context) {
+        transactionContexts.remove(context);
+    }
+
+    /**
+     * 获取已建立 Hibernate 会话的事务上下文数量。
+     *
+     * @return 事务上下文数量。
+     */
+    public int getActiveTransactionContextCount() {
+        return transactionContexts.size();
+    }
+
+    /**
+     * 获取已回收的事务上下文数量。
+     *
+     * @return 事务上下文数量。
+     */
+    public long getReapedTransactionContextCount() {
+        return reapedTransactionContextCount.get();
+    }
+
+    /**
+     * 记录一次事务上下文回收。
+     */
+    void recordReapedTransactionContext() {
+        reapedTransactionContextCount.incrementAndGet();
+    }
+
+    /**
+     * 记录一次事务重试。
+     */
+    void recordTransactionRetry() {
+        transactionRetryCount.incrementAndGet();
+    }
+
+    /**
+     * 获取事务重试次数。
+     *
+     * @return 事务重试次数。
+     */
+    public long getTransactionRetryCount() {
+        return transactionRetryCount.get();
+    }
+
+    /**
+     * 回收泄漏的事务上下文，撤销事务并释放 Hibernate 会话。
+     * 所属线程已结束的事务上下文立即回收；所属线程仍在运行、Hibernate 会话建立时间超过最长时间的事务上下文标记为废弃，
+     * 由所属线程下次访问时回收，Hibernate 会话不是线程安全的，不能在其它线程中释放。
+     *
+     * @param maxAge
+     *     Hibernate 会话最长时间。
+     * @return 回收和新标记为废弃的事务上下文数量。
+     */
+    public int reapTransactionContexts(@Nonnull Duration maxAge) {
+        Instant now = Instant.now();
+        int count = 0;
+        for (HibernateTransactionContext context : transactionContexts) {
+            Instant createTime = context.getSessionCreateTime();
+            if (createTime == null) {
+                transactionContexts.remove(context);
+                continue;
+            }
+
+            Thread owner = context.getSessionOwner();
+            if (owner == null || !owner.isAlive()) {
+                if (releaseEndedTransactionContext(context, owner)) {
+                    ++count;
+                }
+                continue;
+            }
+
+            Duration age = Duration.between(createTime, now);
+            if (age.compareTo(maxAge) >= 0 && context.abandon(createTime)) {
+                LOG.warn(RBMF.get("实例 {} 的事务上下文被线程 {} 占用 {}，超过最长时间，标记为废弃"), name, owner.getName(), age);
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 回收所属线程已结束的事务上下文。所属线程不会再访问事务上下文，可以在当前线程释放。
+     *
+     * @param owner
+     *     所属线程，已被回收时为 null。
+     * @return 是否由当前线程回收。
+     */
+    private boolean releaseEndedTransactionContext(HibernateTransactionContext context, Thread owner) {
+        // 先注销，多个线程同时回收时只有一个线程释放
+        if (!transactionContexts.remove(context)) {
+            return false;
+        }
+
+        LOG.warn(RBMF.get("实例 {} 的事务上下文所属线程 {} 已结束，回收 Hibernate 会话"), name, owner == null ? "" : owner.getName());
+        try {
+            context.release();
+        } catch (RuntimeException e) {
+            LOG.warn(RBMF.get("实例 {} 的事务上下文回收失败"), name, e);
+        }
+        reapedTransactionContextCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 启动后台任务，定期回收泄漏的事务上下文。已启动的后台任务会被停止。
+     *
+     * @param maxAge
+     *     Hibernate 会话最长时间，超过时标记为废弃。
+     * @param period
+     *     回收间隔。
+     */
+    public synchronized void startTransactionContextReaper(@Nonnull Duration maxAge, @Nonnull Duration period) {
+        stopTransactionContextReaper();
+
+        transactionContextReaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SessionFactoryManager-reaper-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        transactionContextReaper.scheduleWithFixedDelay(() -> {
+            try {
+                reapTransactionContexts(maxAge);
+            } catch (RuntimeException e) {
+                LOG.error(RBMF.get("实例 {} 的事务上下文回收任务执行失败"), name, e);
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止回收泄漏事务上下文的后台任务。
+     */
+    public synchronized void stopTransactionContextReaper() {
+        if (transactionContextReaper != null) {
+            try {
+                transactionContextReaper.shutdownNow();
+            } finally {
+                transactionContextReaper = null;
+            }
+        }
+    }
+
     /**
      * 获取数据库连接信息。
      *
@@ -0,0 +1,100 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * 查询规格，使用 JPA 条件查询构建过滤条件，用法与 Spring Data JPA 的同名接口一致。
+ * 过滤值使用 {@link CriteriaBuilder#parameter(Class, String)} 声明为命名参数、执行时绑定的规格对象可以作为常量复用，
+ * {@link HibernateDAO} 按规格对象缓存生成的查询，缓存以对象本身为键，每次调用时新建的规格（包括 and、or、not 组合出的规格）不会命中缓存。
+ *
+ * @param <T>
+ *     实体类。
+ */
+@FunctionalInterface
+public interface Specification<T> {
+    /**
+     * 生成过滤条件。
+     *
+     * @param root
+     *     查询根。
+     * @param query
+     *     条件查询。
+     * @param criteriaBuilder
+     *     查询构建器。
+     * @return 过滤条件，为 null 时不过滤。
+     */
+    @Nullable
+    Predicate toPredicate(@Nonnull Root<T> root, @Nonnull CriteriaQuery<?> query, @Nonnull CriteriaBuilder criteriaBuilder);
+
+    /**
+     * 与另一个规格组合，两者都满足。
+     *
+     * @param other
+     *     另一个规格。
+     * @return 组合后的规格。
+     */
+    @Nonnull
+    default Specification<T> and(@Nonnull Specification<T> other) {
+        return (root, query, criteriaBuilder) -> {
+            Predicate left = toPredicate(root, query, criteriaBuilder);
+            Predicate right = other.toPredicate(root, query, criteriaBuilder);
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            return criteriaBuilder.and(left, right);
+        };
+    }
+
+    /**
+     * 与另一个规格组合，满足其一。
+     *
+     * @param other
+     *     另一个规格。
+     * @return 组合后的规格。
+     */
+    @Nonnull
+    default Specification<T> or(@Nonnull Specification<T> other) {
+        return (root, query, criteriaBuilder) -> {
+            Predicate left = toPredicate(root, query, criteriaBuilder);
+            Predicate right = other.toPredicate(root, query, criteriaBuilder);
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            return criteriaBuilder.or(left, right);
+        };
+    }
+
+    /**
+     * 对规格取反。
+     *
+     * @param spec
+     *     规格。
+     * @return 取反后的规格。
+     */
+    @Nonnull
+    static <T> Specification<T> not(@Nonnull Specification<T> spec) {
+        return (root, query, criteriaBuilder) -> {
+            Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+            if (predicate == null) {
+                return null;
+            }
+            return criteriaBuilder.not(predicate);
+        };
+    }
+}
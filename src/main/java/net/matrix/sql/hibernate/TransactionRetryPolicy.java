@@ -0,0 +1,167 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.hibernate.PessimisticLockException;
+import org.hibernate.exception.LockAcquisitionException;
+
+/**
+ * 事务重试策略，决定事务因死锁或串行化失败而失败时是否重试，以及重试前的等待时间。
+ */
+@Immutable
+public class TransactionRetryPolicy {
+    /**
+     * 默认策略，最多执行 3 次，等待时间从 50 毫秒开始指数增长，最长 1 秒，总时间不超过 10 秒。
+     */
+    public static final TransactionRetryPolicy DEFAULT = new TransactionRetryPolicy(3, Duration.ofMillis(50), Duration.ofSeconds(1), Duration.ofSeconds(10));
+
+    /**
+     * 不重试。
+     */
+    public static final TransactionRetryPolicy NONE = new TransactionRetryPolicy(1, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+
+    /**
+     * 可重试的 SQL 状态码，包括标准的串行化失败、PostgreSQL 的死锁和 Derby 的锁超时与死锁。
+     */
+    private static final Set<String> RETRIABLE_SQL_STATES = Set.of("40001", "40P01", "40XL1", "40XL2");
+
+    /**
+     * 最多执行次数。
+     */
+    private final int maxAttempts;
+
+    /**
+     * 首次重试前的等待时间。
+     */
+    @Nonnull
+    private final Duration initialBackoff;
+
+    /**
+     * 重试前的最长等待时间。
+     */
+    @Nonnull
+    private final Duration maxBackoff;
+
+    /**
+     * 所有执行的总时间上限，超过后不再重试。
+     */
+    @Nonnull
+    private final Duration budget;
+
+    /**
+     * 构造器。
+     *
+     * @param maxAttempts
+     *     最多执行次数。
+     * @param initialBackoff
+     *     首次重试前的等待时间。
+     * @param maxBackoff
+     *     重试前的最长等待时间。
+     * @param budget
+     *     所有执行的总时间上限。
+     */
+    public TransactionRetryPolicy(int maxAttempts, @Nonnull Duration initialBackoff, @Nonnull Duration maxBackoff, @Nonnull Duration budget) {
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.budget = budget;
+    }
+
+    /**
+     * 获取最多执行次数。
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * 获取首次重试前的等待时间。
+     */
+    @Nonnull
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    /**
+     * 获取重试前的最长等待时间。
+     */
+    @Nonnull
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    /**
+     * 获取所有执行的总时间上限。
+     */
+    @Nonnull
+    public Duration getBudget() {
+        return budget;
+    }
+
+    /**
+     * 判断异常是否可以通过重试事务解决。
+     * Hibernate 按方言把死锁和锁获取失败转换为 {@link LockAcquisitionException} 或 {@link PessimisticLockException}，其它情况检查 SQL 状态码。
+     *
+     * @param e
+     *     异常。
+     * @return 是否可以重试。
+     */
+    public boolean isRetriable(@Nonnull Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LockAcquisitionException || cause instanceof PessimisticLockException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && isRetriableSQLState(sqlException.getSQLState())) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断 SQL 状态码是否可以重试。
+     *
+     * @param sqlState
+     *     SQL 状态码。
+     * @return 是否可以重试。
+     */
+    protected boolean isRetriableSQLState(@Nullable String sqlState) {
+        return sqlState != null && RETRIABLE_SQL_STATES.contains(sqlState);
+    }
+
+    /**
+     * 计算第若干次执行失败后的等待时间，在指数增长的上限内随机选取。
+     *
+     * @param attempt
+     *     已执行次数，从 1 开始。
+     * @return 等待时间。
+     */
+    @Nonnull
+    public Duration getBackoff(int attempt) {
+        long initial = initialBackoff.toMillis();
+        long max = maxBackoff.toMillis();
+        if (initial <= 0 || max <= 0) {
+            return Duration.ZERO;
+        }
+
+        long ceiling = initial << Math.min(attempt - 1, 30);
+        if (ceiling <= 0 || ceiling > max) {
+            ceiling = max;
+        }
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.RecordComponent;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * HQL 查询结果类型的映射，每个类型只解析一次。
+ * 记录类按查询结果的列顺序调用规范构造器；整数、长整数和浮点数结果使用基本类型数组保存；其它类型直接由 Hibernate 转换。
+ * 转换后的列表总是只读的。
+ *
+ * @param <R>
+ *     结果类型。
+ */
+@Immutable
+final class TypedResultMapping<R> {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(TypedResultMapping.class).useCurrentLocale();
+
+    /**
+     * 各类型的映射。
+     */
+    private static final ClassValue<TypedResultMapping<?>> MAPPINGS = new ClassValue<>() {
+        @Override
+        protected TypedResultMapping<?> computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    /**
+     * 结果类型。
+     */
+    @Nonnull
+    private final Class<R> type;
+
+    /**
+     * 记录类的规范构造器，参数为列值数组；其它类型为 null。
+     */
+    private final MethodHandle constructor;
+
+    private TypedResultMapping(Class<R> type, MethodHandle constructor) {
+        this.type = type;
+        this.constructor = constructor;
+    }
+
+    /**
+     * 获取结果类型的映射。
+     *
+     * @param type
+     *     结果类型。
+     * @return 映射。
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    static <R> TypedResultMapping<R> of(@Nonnull Class<R> type) {
+        // MAPPINGS 按类型计算，值的类型参数与键相同
+        return (TypedResultMapping<R>) MAPPINGS.get(type);
+    }
+
+    /**
+     * 解析结果类型。
+     */
+    private static <R> TypedResultMapping<R> create(Class<R> type) {
+        if (!type.isRecord()) {
+            return new TypedResultMapping<>(type, null);
+        }
+
+        RecordComponent[] components = type.getRecordComponents();
+        Class<?>[] parameterTypes = new Class<?>[components.length];
+        for (int i = 0; i < components.length; ++i) {
+            parameterTypes[i] = components[i].getType();
+        }
+        try {
+            Constructor<R> canonicalConstructor = type.getDeclaredConstructor(parameterTypes);
+            canonicalConstructor.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflectConstructor(canonicalConstructor);
+            handle = handle.asSpreader(Object[].class, components.length).asType(MethodType.methodType(Object.class, Object[].class));
+            return new TypedResultMapping<>(type, handle);
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException(RBMF.format("不能访问记录类 {0} 的构造器", type.getName()), e);
+        }
+    }
+
+    /**
+     * 获取 HQL 查询使用的结果类型，记录类使用列值数组。
+     */
+    @Nonnull
+    Class<?> getQueryType() {
+        if (constructor != null) {
+            return Object[].class;
+        }
+        return type;
+    }
+
+    /**
+     * 把查询结果转换为结果类型。
+     *
+     * @param rows
+     *     查询结果。
+     * @return 只读的结果列表。
+     */
+    @Nonnull
+    List<R> map(@Nonnull List<?> rows) {
+        if (constructor != null) {
+            List<R> result = new ArrayList<>(rows.size());
+            for (Object row : rows) {
+                result.add(construct((Object[]) row));
+            }
+            return Collections.unmodifiableList(result);
+        }
+        if (containsNull(rows)) {
+            return Collections.unmodifiableList(cast(rows));
+        }
+        if (type == Long.class) {
+            long[] values = new long[rows.size()];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = (Long) rows.get(i);
+            }
+            return cast(new LongList(values));
+        }
+        if (type == Integer.class) {
+            int[] values = new int[rows.size()];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = (Integer) rows.get(i);
+            }
+            return cast(new IntList(values));
+        }
+        if (type == Double.class) {
+            double[] values = new double[rows.size()];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = (Double) rows.get(i);
+            }
+            return cast(new DoubleList(values));
+        }
+        return Collections.unmodifiableList(cast(rows));
+    }
+
+    /**
+     * 把查询结果列表视为结果类型的列表，Hibernate 已按结果类型转换各行，基本类型列表只在结果类型相同时使用。
+     */
+    @SuppressWarnings("unchecked")
+    private static <R> List<R> cast(List<?> rows) {
+        return (List<R>) rows;
+    }
+
+    /**
+     * 检查查询结果中是否有空值，有空值时不能使用基本类型数组保存。
+     */
+    private static boolean containsNull(List<?> rows) {
+        for (Object row : rows) {
+            if (row == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 使用一行列值调用记录类的构造器。
+     */
+    private R construct(Object[] row) {
+        try {
+            return type.cast((Object) constructor.invokeExact(row));
+        } catch (ClassCastException | IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException(RBMF.format("查询结果不能转换为记录类 {0}", type.getName()), e);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 使用 long 数组保存的只读列表。
+     */
+    private static final class LongList
+        extends AbstractList<Long>
+        implements RandomAccess {
+        private final long[] values;
+
+        LongList(long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Long get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    /**
+     * 使用 int 数组保存的只读列表。
+     */
+    private static final class IntList
+        extends AbstractList<Integer>
+        implements RandomAccess {
+        private final int[] values;
+
+        IntList(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    /**
+     * 使用 double 数组保存的只读列表。
+     */
+    private static final class DoubleList
+        extends AbstractList<Double>
+        implements RandomAccess {
+        private final double[] values;
+
+        DoubleList(double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Double get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+}
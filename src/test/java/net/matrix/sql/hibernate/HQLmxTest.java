@@ -4,9 +4,12 @@
  */
 package net.matrix.sql.hibernate;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 class HQLmxTest {
     @Test
@@ -22,4 +25,43 @@ class HQLmxTest {
         assertThat(HQLmx.getParameterName(0)).isEqualTo("p0");
         assertThat(HQLmx.getParameterName(10)).isEqualTo("p10");
     }
+
+    @Test
+    void testIndexOfClause() {
+        String hql = "from User u where u.id in (select v.id from User v where v.name = 'a where b') order  by u.name";
+
+        assertThat(HQLmx.indexOfClause(hql, "where")).isEqualTo(12);
+        assertThat(HQLmx.indexOfClause(hql, "order by")).isEqualTo(hql.indexOf("order"));
+        assertThat(HQLmx.indexOfClause(hql, "group by")).isEqualTo(-1);
+        assertThat(HQLmx.indexOfClause("from Orders o", "order by")).isEqualTo(-1);
+    }
+
+    @Test
+    void testToCountQuery() {
+        assertThat(HQLmx.toCountQuery("from User u where u.age > :p0 order by u.name")).isEqualTo("select count(*) from User u where u.age > :p0");
+        assertThat(HQLmx.toCountQuery("select u from User u left join fetch u.roles order by u.name")).isEqualTo("select count(distinct u) from User u left join u.roles");
+        assertThat(HQLmx.toCountQuery("from User as u join fetch u.roles where u.age > :p0"))
+            .isEqualTo("select count(distinct u) from User as u join u.roles where u.age > :p0");
+        assertThat(HQLmx.toCountQuery("select distinct u.name from User u")).isEqualTo("select count(distinct u.name) from User u");
+        assertThat(HQLmx.toCountQuery("select u.name, count(u) from User u group by u.name order by u.name"))
+            .isEqualTo("select count(*) from (select u.name, count(u) from User u group by u.name) counted");
+    }
+
+    @Test
+    void testToCountQuery_noFrom() {
+        assertThatIllegalArgumentException().isThrownBy(() -> HQLmx.toCountQuery("select 1"));
+    }
+
+    @Test
+    void testToKeysetQuery() {
+        assertThat(HQLmx.toKeysetQuery("from User u", List.of("u.name", "u.id"), true, 0, false)).isEqualTo("from User u order by u.name asc, u.id asc");
+        assertThat(HQLmx.toKeysetQuery("from User u", List.of("u.id"), false, 1, true)).isEqualTo("from User u where u.id < :p1 order by u.id desc");
+        assertThat(HQLmx.toKeysetQuery("from User u where u.age > :p0 group by u.name", List.of("u.name", "u.id"), true, 1, true))
+            .isEqualTo("from User u where (u.age > :p0) and (u.name, u.id) > (:p1, :p2) group by u.name order by u.name asc, u.id asc");
+    }
+
+    @Test
+    void testToKeysetQuery_orderBy() {
+        assertThatIllegalArgumentException().isThrownBy(() -> HQLmx.toKeysetQuery("from User u order by u.id", List.of("u.id"), true, 0, false));
+    }
 }
@@ -4,7 +4,11 @@
  */
 package net.matrix.sql.hibernate;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
@@ -12,12 +16,19 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.OffsetScrollPosition;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 
 import net.matrix.sql.hibernate.entity.User;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 class HibernateDAOTest {
     static SessionFactory sessionFactory;
@@ -79,6 +90,23 @@ class HibernateDAOTest {
         assertThat(user2.getId()).isNotNull();
     }
 
+    @Test
+    void testSaveAllInBatches() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            User user = new User();
+            user.setName("test" + i);
+            users.add(user);
+        }
+
+        List<Long> progress = new ArrayList<>();
+        assertThat(dao.saveAllInBatches(users, 2, progress::add)).isEqualTo(5);
+        assertThat(progress).containsExactly(2L, 4L, 5L);
+        assertThat(sessionFactory.getCurrentSession().contains(users.get(0))).isFalse();
+        assertThat(dao.count()).isEqualTo(5);
+    }
+
     @Test
     void testFindById() {
         HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
@@ -101,6 +129,20 @@ class HibernateDAOTest {
         assertThat(dao.existsById(user.getId())).isTrue();
     }
 
+    @Test
+    void testExistsById_notLoaded() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        User user = new User();
+        user.setName("test");
+        dao.save(user);
+        dao.getCurrentSession().flush();
+        dao.getCurrentSession().clear();
+
+        assertThat(dao.existsById(user.getId())).isTrue();
+        assertThat(dao.existsById("missing")).isFalse();
+        assertThat(dao.getCurrentSession().getStatistics().getEntityCount()).isZero();
+    }
+
     @Test
     void testFindAll() {
         HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
@@ -125,6 +167,53 @@ class HibernateDAOTest {
         assertThat(users.get(0).getName()).isEqualTo("test");
     }
 
+    @Test
+    void testFindAllById_preserveOrder() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        User user1 = new User();
+        user1.setName("test1");
+        User user2 = new User();
+        user2.setName("test2");
+        dao.saveAll(List.of(user1, user2));
+
+        List<User> users = dao.findAllById(List.of(user2.getId(), "missing", user1.getId()), true);
+        assertThat(users).containsExactly(user2, user1);
+    }
+
+    @Test
+    void testStreamAll() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        dao.setFetchSize(2);
+        User user1 = new User();
+        user1.setName("test1");
+        User user2 = new User();
+        user2.setName("test2");
+        User user3 = new User();
+        user3.setName("test3");
+        dao.saveAll(List.of(user1, user2, user3));
+        sessionFactory.getCurrentSession().flush();
+        sessionFactory.getCurrentSession().clear();
+
+        try (Stream<User> stream = dao.streamAll(Sort.by("name"))) {
+            assertThat(stream.map(User::getName)).containsExactly("test1", "test2", "test3");
+        }
+        assertThat(sessionFactory.getCurrentSession().getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    void testForEach() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        User user1 = new User();
+        user1.setName("test1");
+        User user2 = new User();
+        user2.setName("test2");
+        dao.saveAll(List.of(user1, user2));
+
+        List<String> names = new ArrayList<>();
+        dao.forEach(Sort.by("name").descending(), user -> names.add(user.getName()));
+        assertThat(names).containsExactly("test2", "test1");
+    }
+
     @Test
     void testCount() {
         HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
@@ -168,6 +257,21 @@ class HibernateDAOTest {
         assertThat(dao.count()).isZero();
     }
 
+    @Test
+    void testDeleteAllById_bulk() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        User user1 = new User();
+        user1.setName("test1");
+        User user2 = new User();
+        user2.setName("test2");
+        dao.saveAll(List.of(user1, user2));
+
+        dao.deleteAllById(List.of(user1.getId(), user2.getId(), "missing"));
+        assertThat(dao.count()).isZero();
+        assertThat(dao.getCurrentSession().contains(user1)).isFalse();
+        assertThat(dao.getCurrentSession().contains(user2)).isFalse();
+    }
+
     @Test
     void testDeleteAll_iterable() {
         HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
@@ -205,6 +309,26 @@ class HibernateDAOTest {
         assertThat(users.get(1).getName()).isEqualTo("test1");
     }
 
+    @Test
+    void testFindAll_sort_ignoreCase() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        User user1 = new User();
+        user1.setName("a");
+        User user2 = new User();
+        user2.setName("B");
+        dao.saveAll(List.of(user1, user2));
+
+        assertThat(dao.findAll(Sort.by(Sort.Order.asc("name").ignoreCase()))).containsExactly(user1, user2);
+        assertThat(dao.findAll(Sort.by(Sort.Order.asc("name").ignoreCase()))).containsExactly(user1, user2);
+    }
+
+    @Test
+    void testFindAll_sort_invalidProperty() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> dao.findAll(Sort.by("name desc, id")));
+    }
+
     @Test
     void testFindAll_pageable() {
         HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
@@ -218,4 +342,194 @@ class HibernateDAOTest {
         assertThat(users).hasSize(1);
         assertThat(users.get(0).getName()).isEqualTo("test2");
     }
+
+    @Test
+    void testFindAll_pageable_total() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        User user1 = new User();
+        user1.setName("test1");
+        User user2 = new User();
+        user2.setName("test2");
+        User user3 = new User();
+        user3.setName("test3");
+        dao.saveAll(List.of(user1, user2, user3));
+
+        Page<User> page = dao.findAll(PageRequest.of(0, 10, Sort.by("name")));
+        assertThat(page.getContent()).containsExactly(user1, user2, user3);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+
+        page = dao.findAll(PageRequest.of(1, 2, Sort.by("name")));
+        assertThat(page.getContent()).containsExactly(user3);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+
+        page = dao.findAll(PageRequest.of(0, 2, Sort.by("name")));
+        assertThat(page.getContent()).containsExactly(user1, user2);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void testFindAll_pageable_countCache() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        dao.setCountCacheTtl(Duration.ofMinutes(1));
+        User user1 = new User();
+        user1.setName("test1");
+        User user2 = new User();
+        user2.setName("test2");
+        dao.saveAll(List.of(user1, user2));
+        sessionFactory.getCurrentSession().flush();
+
+        assertThat(dao.findAll(PageRequest.of(0, 1)).getTotalElements()).isEqualTo(2);
+
+        User user3 = new User();
+        user3.setName("test3");
+        dao.save(user3);
+        sessionFactory.getCurrentSession().flush();
+        assertThat(dao.findAll(PageRequest.of(0, 1)).getTotalElements()).isEqualTo(2);
+
+        dao.clearCountCache();
+        assertThat(dao.findAll(PageRequest.of(0, 1)).getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void testFindSlice() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        User user1 = new User();
+        user1.setName("test1");
+        User user2 = new User();
+        user2.setName("test2");
+        User user3 = new User();
+        user3.setName("test3");
+        dao.saveAll(List.of(user1, user2, user3));
+
+        Slice<User> slice = dao.findSlice(PageRequest.of(0, 2, Sort.by("name")));
+        assertThat(slice.getContent()).containsExactly(user1, user2);
+        assertThat(slice.hasNext()).isTrue();
+
+        slice = dao.findSlice(slice.nextPageable());
+        assertThat(slice.getContent()).containsExactly(user3);
+        assertThat(slice.hasNext()).isFalse();
+    }
+
+    @Test
+    void testFindAll_offset() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        User user1 = new User();
+        user1.setName("test1");
+        User user2 = new User();
+        user2.setName("test2");
+        User user3 = new User();
+        user3.setName("test3");
+        dao.saveAll(List.of(user1, user2, user3));
+
+        Window<User> window = dao.findAll(ScrollPosition.offset(), Sort.by("name"), 2);
+        assertThat(window.getContent()).containsExactly(user1, user2);
+        assertThat(window.hasNext()).isTrue();
+
+        window = dao.findAll((OffsetScrollPosition) window.positionAt(1), Sort.by("name"), 2);
+        assertThat(window.getContent()).containsExactly(user3);
+        assertThat(window.hasNext()).isFalse();
+    }
+
+    @Test
+    void testFindAll_spec() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        User user1 = new User();
+        user1.setName("test1");
+        User user2 = new User();
+        user2.setName("test2");
+        User user3 = new User();
+        user3.setName("other");
+        dao.saveAll(List.of(user1, user2, user3));
+
+        Specification<User> spec = (root, query, criteriaBuilder) -> criteriaBuilder.like(root.get("name"), "test%");
+        assertThat(dao.findAll(spec, Sort.by("name").descending())).containsExactly(user2, user1);
+        assertThat(dao.findAll(Specification.not(spec))).containsExactly(user3);
+        assertThat(dao.count(spec)).isEqualTo(2);
+        assertThat(dao.exists(spec)).isTrue();
+
+        Specification<User> none = (root, query, criteriaBuilder) -> null;
+        assertThat(dao.count(none.or(spec))).isEqualTo(2);
+        assertThat(dao.count(spec.or(none))).isEqualTo(2);
+
+        Page<User> page = dao.findAll(spec, PageRequest.of(0, 1, Sort.by("name")));
+        assertThat(page.getContent()).containsExactly(user1);
+        assertThat(page.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void testFindAll_spec_parameters() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        User user1 = new User();
+        user1.setName("test1");
+        User user2 = new User();
+        user2.setName("test2");
+        dao.saveAll(List.of(user1, user2));
+
+        Specification<User> spec = (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("name"), criteriaBuilder.parameter(String.class, "name"));
+        assertThat(dao.findAll(spec, Map.of("name", "test1"))).containsExactly(user1);
+        assertThat(dao.findAll(spec, Map.of("name", "test2"))).containsExactly(user2);
+        assertThat(dao.count(spec, Map.of("name", "test3"))).isZero();
+        assertThat(dao.exists(spec, Map.of("name", "test3"))).isFalse();
+    }
+
+    @Test
+    void testFindAllProjected_record() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        User user1 = new User();
+        user1.setName("test1");
+        user1.setAge(10);
+        User user2 = new User();
+        user2.setName("test2");
+        user2.setAge(20);
+        dao.saveAll(List.of(user1, user2));
+
+        List<UserAge> users = dao.findAllProjected(UserAge.class, Sort.by("name"));
+        assertThat(users).containsExactly(new UserAge("test1", 10), new UserAge("test2", 20));
+
+        Page<UserAge> page = dao.findAllProjected(UserAge.class, null, PageRequest.of(0, 1, Sort.by("name").descending()));
+        assertThat(page.getContent()).containsExactly(new UserAge("test2", 20));
+        assertThat(page.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void testFindAllProjected_interface() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        User user1 = new User();
+        user1.setName("test1");
+        user1.setAge(10);
+        dao.save(user1);
+
+        List<UserNameView> users = dao.findAllProjected(UserNameView.class, Sort.by("name"));
+        assertThat(users).hasSize(1);
+        assertThat(users.get(0).getName()).isEqualTo("test1");
+    }
+
+    record UserAge(String name, Integer age) {
+    }
+
+    interface UserNameView {
+        String getName();
+    }
+
+    @Test
+    void testFindAll_keyset() {
+        HibernateDAO<User, String> dao = new HibernateDAO<>(sessionFactory, User.class);
+        User user1 = new User();
+        user1.setName("test1");
+        User user2 = new User();
+        user2.setName("test2");
+        User user3 = new User();
+        user3.setName("test3");
+        dao.saveAll(List.of(user1, user2, user3));
+
+        Window<User> window = dao.findAll(ScrollPosition.keyset(), Sort.by("name").descending(), 2);
+        assertThat(window.getContent()).containsExactly(user3, user2);
+        assertThat(window.hasNext()).isTrue();
+
+        KeysetScrollPosition position = (KeysetScrollPosition) window.positionAt(1);
+        position = ScrollPosition.forward(KeysetCursor.fromToken(new KeysetCursor(position.getKeys()).toToken()).getKeys());
+        window = dao.findAll(position, Sort.by("name").descending(), 2);
+        assertThat(window.getContent()).containsExactly(user1);
+        assertThat(window.hasNext()).isFalse();
+    }
 }
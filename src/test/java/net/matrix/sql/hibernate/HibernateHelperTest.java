@@ -4,13 +4,23 @@
  */
 package net.matrix.sql.hibernate;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
+import org.hibernate.exception.LockAcquisitionException;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import net.matrix.sql.hibernate.entity.User;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 class HibernateHelperTest {
     @BeforeAll
@@ -18,6 +28,219 @@ class HibernateHelperTest {
         SessionFactoryManager.getInstance();
     }
 
+    @Test
+    void testInTransaction() {
+        String result = HibernateHelper.inTransaction(context -> {
+            assertThat(context.isActive()).isTrue();
+            return "abc";
+        });
+        assertThat(result).isEqualTo("abc");
+        assertThat(SessionFactoryManager.getInstance().getTransactionContext().isActive()).isFalse();
+    }
+
+    @Test
+    void testInTransaction_retry() {
+        SessionFactoryManager manager = SessionFactoryManager.getInstance();
+        TransactionRetryPolicy policy = new TransactionRetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(5), Duration.ofSeconds(1));
+        AtomicInteger attempts = new AtomicInteger();
+        long retryCount = manager.getTransactionRetryCount();
+
+        long count = HibernateHelper.inTransaction(policy, context -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new LockAcquisitionException("deadlock", new SQLException("deadlock", "40001"));
+            }
+            return HibernateHelper.querySQLCount(context, "VALUES (1)");
+        });
+        assertThat(count).isEqualTo(1L);
+        assertThat(attempts).hasValue(2);
+        assertThat(manager.getTransactionRetryCount()).isEqualTo(retryCount + 1);
+    }
+
+    @Test
+    void testBulkInsert() {
+        User user1 = new User();
+        user1.setName("bulkInsert");
+        User user2 = new User();
+        user2.setName("bulkInsert");
+
+        HibernateHelper.beginTransaction();
+        try {
+            assertThat(HibernateHelper.bulkInsert(List.of(user1, user2))).isEqualTo(2L);
+            assertThat(user1.getId()).isNotNull();
+            assertThat(HibernateHelper.queryCount("select count(*) from User where name = 'bulkInsert'")).isEqualTo(2L);
+        } finally {
+            HibernateHelper.rollbackTransaction();
+            HibernateHelper.releaseTransaction();
+        }
+    }
+
+    @Test
+    void testBulkInsert_partialBatch() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            User user = new User();
+            user.setName("bulkInsert_partialBatch");
+            users.add(user);
+        }
+
+        HibernateHelper.beginTransaction();
+        try {
+            HibernateHelper.bulkInsert(users);
+            List names = HibernateHelper.queryAll("select u.name from User u where u.name = :p0", Map.of("p0", "bulkInsert_partialBatch"));
+            assertThat(names).hasSize(3);
+        } finally {
+            HibernateHelper.rollbackTransaction();
+            HibernateHelper.releaseTransaction();
+        }
+    }
+
+    @Test
+    void testBulkDelete() {
+        User user = new User();
+        user.setName("bulkDelete");
+
+        HibernateHelper.beginTransaction();
+        try {
+            HibernateHelper.bulkInsert(Stream.of(user));
+            assertThat(HibernateHelper.bulkDelete(Stream.of(user))).isEqualTo(1L);
+            assertThat(HibernateHelper.queryCount("select count(*) from User where name = 'bulkDelete'")).isZero();
+        } finally {
+            HibernateHelper.rollbackTransaction();
+            HibernateHelper.releaseTransaction();
+        }
+    }
+
+    @Test
+    void testQueryPageWithTotal() {
+        User user1 = new User();
+        user1.setName("pageWithTotal");
+        User user2 = new User();
+        user2.setName("pageWithTotal");
+        User user3 = new User();
+        user3.setName("pageWithTotal");
+
+        HibernateHelper.beginTransaction();
+        try {
+            HibernateHelper.bulkInsert(List.of(user1, user2, user3));
+            String hql = "from User u where u.name = :p0 order by u.id";
+            PageResult<Object> page = HibernateHelper.queryPageWithTotal(hql, 0, 2, "pageWithTotal");
+            assertThat(page.getContent()).hasSize(2);
+            assertThat(page.getTotal()).isEqualTo(3L);
+
+            page = HibernateHelper.queryPageWithTotal(hql, 2, 2, "pageWithTotal");
+            assertThat(page.getContent()).hasSize(1);
+            assertThat(page.getTotal()).isEqualTo(3L);
+
+            page = HibernateHelper.queryPageWithTotal(hql, 4, 2, "pageWithTotal");
+            assertThat(page.getContent()).isEmpty();
+            assertThat(page.getTotal()).isEqualTo(3L);
+        } finally {
+            HibernateHelper.rollbackTransaction();
+            HibernateHelper.releaseTransaction();
+        }
+    }
+
+    @Test
+    void testExecuteBatch() {
+        User user1 = new User();
+        user1.setName("executeBatch1");
+        User user2 = new User();
+        user2.setName("executeBatch2");
+
+        HibernateHelper.beginTransaction();
+        try {
+            HibernateHelper.bulkInsert(List.of(user1, user2));
+            List<Object[]> paramsList = List.of(new Object[] {
+                10, "executeBatch1"
+            }, new Object[] {
+                20, "executeBatch2"
+            }, new Object[] {
+                30, "none"
+            });
+            assertThat(HibernateHelper.executeBatch("update User set age = :p0 where name = :p1", paramsList)).containsExactly(1, 1, 0);
+            assertThat(HibernateHelper.queryCount("select sum(age) from User where name like 'executeBatch%'")).isEqualTo(30L);
+        } finally {
+            HibernateHelper.rollbackTransaction();
+            HibernateHelper.releaseTransaction();
+        }
+    }
+
+    @Test
+    void testUpdateSQLBatch() {
+        User user1 = new User();
+        user1.setName("updateSQLBatch1");
+        User user2 = new User();
+        user2.setName("updateSQLBatch2");
+
+        HibernateHelper.beginTransaction();
+        try {
+            HibernateHelper.bulkInsert(List.of(user1, user2));
+            List<Object[]> paramsList = List.of(new Object[] {
+                10, "updateSQLBatch1"
+            }, new Object[] {
+                20, "updateSQLBatch2"
+            }, new Object[] {
+                30, "none"
+            });
+            assertThat(HibernateHelper.updateSQLBatch("UPDATE TEST_USER SET AGE = ? WHERE NAME = ?", 2, paramsList)).containsExactly(1, 1, 0);
+            assertThat(HibernateHelper.querySQLCount("SELECT SUM(AGE) FROM TEST_USER WHERE NAME LIKE 'updateSQLBatch%'")).isEqualTo(30L);
+        } finally {
+            HibernateHelper.rollbackTransaction();
+            HibernateHelper.releaseTransaction();
+        }
+    }
+
+    @Test
+    void testQueryAll_typed() {
+        User user = new User();
+        user.setName("typed");
+        user.setAge(30);
+
+        HibernateHelper.beginTransaction();
+        try {
+            HibernateHelper.bulkInsert(List.of(user));
+            List<UserAge> ages = HibernateHelper.queryAll(UserAge.class, "select u.name, u.age from User u where u.name = :p0", "typed");
+            assertThat(ages).containsExactly(new UserAge("typed", 30));
+
+            List<Long> counts = HibernateHelper.queryAll(Long.class, "select count(u) from User u where u.name = :p0", "typed");
+            assertThat(counts).containsExactly(1L);
+
+            List<User> page = HibernateHelper.queryPage(User.class, "from User u where u.name = :p0", 0, 10, "typed");
+            assertThat(page).hasSize(1);
+            assertThat(page.get(0).getAge()).isEqualTo(30);
+            assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> ages.add(new UserAge("typed", 31)));
+            assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(page::clear);
+        } finally {
+            HibernateHelper.rollbackTransaction();
+            HibernateHelper.releaseTransaction();
+        }
+    }
+
+    @Test
+    void testQueryKeysetPage() {
+        User user1 = new User();
+        user1.setName("keyset");
+        User user2 = new User();
+        user2.setName("keyset");
+
+        HibernateHelper.beginTransaction();
+        try {
+            HibernateHelper.bulkInsert(List.of(user1, user2));
+            List<String> keyPaths = List.of("u.name", "u.id");
+            List<User> page = HibernateHelper.queryKeysetPage("from User u where u.name = :p0", keyPaths, true, null, 1, "keyset");
+            assertThat(page).hasSize(1);
+
+            User last = page.get(0);
+            KeysetCursor cursor = new KeysetCursor(Map.of("u.name", last.getName(), "u.id", last.getId()));
+            page = HibernateHelper.queryKeysetPage("from User u where u.name = :p0", keyPaths, true, cursor, 1, "keyset");
+            assertThat(page).hasSize(1);
+            assertThat(page.get(0).getId()).isGreaterThan(last.getId());
+        } finally {
+            HibernateHelper.rollbackTransaction();
+            HibernateHelper.releaseTransaction();
+        }
+    }
+
     @Test
     void testQuerySQLAsMap() {
         List<Map<String, Object>> result = HibernateHelper.querySQLAsMap("VALUES ('abc'), ('123')");
@@ -25,10 +248,82 @@ class HibernateHelperTest {
         assertThat(result.get(0)).containsEntry("1", "abc");
     }
 
+    @Test
+    void testQuerySQLAsMap_params() {
+        String sql = "SELECT C FROM (VALUES ('abc'), ('123'), ('xyz')) AS T (C) WHERE C <> ? AND C <> ?";
+        List<Map<String, Object>> result = HibernateHelper.querySQLAsMap(sql, List.of("abc", "xyz"));
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0)).containsEntry("C", "123");
+
+        String namedSql = "SELECT C FROM (VALUES ('abc'), ('123'), ('xyz')) AS T (C) WHERE C <> :c AND C <> ':c'";
+        result = HibernateHelper.querySQLAsMap(namedSql, Map.of("c", "abc"));
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0)).containsEntry("C", "123");
+    }
+
+    @Test
+    void testQuerySQLCount_reuse() {
+        String sql = "SELECT COUNT(*) FROM (VALUES ('abc'), ('123'), ('xyz')) AS T (C) WHERE C <> ?";
+        List<Long> result = HibernateHelper.inTransaction(context -> {
+            NativeStatementCache cache = NativeStatementCache.of(context.getSession());
+            List<Long> counts = new ArrayList<>();
+            counts.add(HibernateHelper.querySQLCount(context, sql, "abc"));
+            PreparedStatement statement = cache.getCached(sql);
+            assertThat(statement).isNotNull();
+            counts.add(HibernateHelper.querySQLCount(context, sql, "none"));
+            assertThat(cache.getCached(sql)).isSameAs(statement);
+            return counts;
+        });
+        assertThat(result).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void testQuerySQLStream() {
+        List<String> result = HibernateHelper.querySQLStream("VALUES ('abc'), ('123')", 10, rows -> rows.map(row -> (String) row.getObject(1)).toList());
+        assertThat(result).containsExactly("abc", "123");
+    }
+
+    @Test
+    void testQuerySQLForEach() {
+        String sql = "SELECT C FROM (VALUES ('abc'), ('123'), ('xyz')) AS T (C) WHERE C <> ?";
+        List<Map<String, Object>> result = new ArrayList<>();
+        long count = HibernateHelper.querySQLForEach(sql, 2, row -> result.add(row.toMap()), "123");
+        assertThat(count).isEqualTo(2);
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0)).containsEntry("C", "abc");
+        assertThat(result.get(1)).containsEntry("C", "xyz");
+        assertThat(result.get(1).get("c")).isEqualTo("xyz");
+    }
+
+    @Test
+    void testQuerySQLAsColumns() {
+        String sql = "SELECT * FROM (VALUES (1, 'abc', CAST(NULL AS BIGINT)), (2, '123', CAST(3 AS BIGINT))) AS T (I, S, L)";
+        ColumnarResult result = HibernateHelper.querySQLAsColumns(sql);
+        assertThat(result).hasSize(2);
+        assertThat(result.getColumnCount()).isEqualTo(3);
+        assertThat(result.getValue(1, 3)).isEqualTo(3L);
+        assertThat(result.get(0)).containsEntry("s", "abc").containsEntry("L", null);
+        assertThat(result).isEqualTo(HibernateHelper.querySQLAsMap(sql));
+    }
+
     @Test
     void testQuerySQLPageAsMap() {
         List<Map<String, Object>> result = HibernateHelper.querySQLPageAsMap("VALUES ('abc'), ('123')", 1, 1);
         assertThat(result).hasSize(1);
         assertThat(result.get(0)).containsEntry("1", "123");
     }
+
+    @Test
+    void testQuerySQLPageAsMap_params() {
+        String sql = "SELECT C FROM (VALUES ('abc'), ('123'), ('xyz')) AS T (C) WHERE C <> ?";
+        List<Map<String, Object>> result = HibernateHelper.querySQLPageAsMap(sql, 1, 5, "abc");
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0)).containsEntry("C", "xyz");
+
+        result = HibernateHelper.querySQLPageAsMap(sql, 5, 5, "abc");
+        assertThat(result).isEmpty();
+    }
+
+    record UserAge(String name, Integer age) {
+    }
 }
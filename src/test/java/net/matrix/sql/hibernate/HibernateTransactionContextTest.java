@@ -4,7 +4,11 @@
  */
 package net.matrix.sql.hibernate;
 
+import java.sql.Connection;
+
 import org.assertj.core.util.introspection.FieldSupport;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.junit.jupiter.api.Test;
 
@@ -27,6 +31,8 @@ class HibernateTransactionContextTest {
         HibernateTransactionContext context = new HibernateTransactionContext(manager);
 
         assertThat(context.getSession()).isNotNull();
+        assertThat(context.getSessionOwner()).isSameAs(Thread.currentThread());
+        assertThat(context.getSessionCreateTime()).isNotNull();
     }
 
     @Test
@@ -38,6 +44,53 @@ class HibernateTransactionContextTest {
         assertThat(fieldSupport.fieldValue("transaction", Transaction.class, context)).isNotNull();
     }
 
+    @Test
+    void testBeginDeferred() {
+        SessionFactoryManager manager = SessionFactoryManager.getInstance();
+        HibernateTransactionContext context = new HibernateTransactionContext(manager);
+
+        context.beginDeferred();
+        assertThat(fieldSupport.fieldValue("session", Session.class, context)).isNull();
+        assertThat(fieldSupport.fieldValue("transaction", Transaction.class, context)).isNull();
+        context.getSession();
+        assertThat(fieldSupport.fieldValue("transaction", Transaction.class, context)).isNotNull();
+        context.release();
+    }
+
+    @Test
+    void testBeginReadOnly() {
+        SessionFactoryManager manager = SessionFactoryManager.getInstance();
+        HibernateTransactionContext context = new HibernateTransactionContext(manager);
+
+        context.beginReadOnly();
+        Session session = context.getSession();
+        assertThat(context.isReadOnly()).isTrue();
+        assertThat(session.isDefaultReadOnly()).isTrue();
+        assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.MANUAL);
+        assertThat(session.doReturningWork(Connection::isReadOnly)).isTrue();
+        context.commit();
+        assertThat(context.isReadOnly()).isFalse();
+        assertThat(session.isDefaultReadOnly()).isFalse();
+        assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.AUTO);
+        context.release();
+    }
+
+    @Test
+    void testBeginReadOnly_restore() {
+        SessionFactoryManager manager = SessionFactoryManager.getInstance();
+        HibernateTransactionContext context = new HibernateTransactionContext(manager);
+        Session session = context.getSession();
+        session.setDefaultReadOnly(true);
+        session.setHibernateFlushMode(FlushMode.COMMIT);
+
+        context.beginReadOnly();
+        assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.MANUAL);
+        context.rollback();
+        assertThat(session.isDefaultReadOnly()).isTrue();
+        assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.COMMIT);
+        context.release();
+    }
+
     @Test
     void testCommit() {
         SessionFactoryManager manager = SessionFactoryManager.getInstance();
@@ -48,6 +101,19 @@ class HibernateTransactionContextTest {
         assertThat(fieldSupport.fieldValue("transaction", Transaction.class, context)).isNull();
     }
 
+    @Test
+    void testCommit_deferred() {
+        SessionFactoryManager manager = SessionFactoryManager.getInstance();
+        HibernateTransactionContext context = new HibernateTransactionContext(manager);
+        context.beginDeferred();
+
+        context.commit();
+        assertThat(fieldSupport.fieldValue("session", Session.class, context)).isNull();
+        context.getSession();
+        assertThat(fieldSupport.fieldValue("transaction", Transaction.class, context)).isNull();
+        context.release();
+    }
+
     @Test
     void testRollback() {
         SessionFactoryManager manager = SessionFactoryManager.getInstance();
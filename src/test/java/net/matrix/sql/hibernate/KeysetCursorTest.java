@@ -0,0 +1,57 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class KeysetCursorTest {
+    @Test
+    void testGetValues() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("name", "abc");
+        keys.put("id", 1L);
+        KeysetCursor cursor = new KeysetCursor(keys);
+
+        assertThat(cursor.getValues(List.of("id", "name"))).containsExactly(1L, "abc");
+        assertThatIllegalArgumentException().isThrownBy(() -> cursor.getValues(List.of("age")));
+    }
+
+    @Test
+    void testToToken() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("birthdate", LocalDate.of(2024, 1, 1));
+        keys.put("amount", new BigDecimal("12.50"));
+        keys.put("deleted", null);
+        keys.put("id", "abc");
+        KeysetCursor cursor = new KeysetCursor(keys);
+
+        KeysetCursor result = KeysetCursor.fromToken(cursor.toToken());
+        assertThat(result).isEqualTo(cursor);
+        assertThat(result.getKeys().keySet()).containsExactly("birthdate", "amount", "deleted", "id");
+    }
+
+    @Test
+    void testToToken_unsupported() {
+        KeysetCursor cursor = new KeysetCursor(Map.of("id", new HashMap<>()));
+
+        assertThatIllegalArgumentException().isThrownBy(cursor::toToken);
+    }
+
+    @Test
+    void testFromToken_invalid() {
+        assertThatIllegalArgumentException().isThrownBy(() -> KeysetCursor.fromToken("invalid"));
+        assertThatIllegalArgumentException().isThrownBy(() -> KeysetCursor.fromToken("A".repeat(10000)));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class QueryBatchTest {
+    @BeforeAll
+    static void beforeAll() {
+        SessionFactoryManager.getInstance();
+    }
+
+    @Test
+    void testExecute() {
+        QueryBatch batch = new QueryBatch();
+        CompletableFuture<Long> count = batch.querySQLCount("VALUES (3)");
+        CompletableFuture<List<Map<String, Object>>> rows = batch.querySQLAsMap("VALUES ('abc'), ('123')");
+        CompletableFuture<Long> users = batch.queryCount("select count(*) from User");
+        assertThat(batch.size()).isEqualTo(3);
+
+        batch.execute();
+        assertThat(count.join()).isEqualTo(3L);
+        assertThat(rows.join()).hasSize(2);
+        assertThat(users.join()).isNotNegative();
+    }
+
+    @Test
+    void testExecute_queryOptions() {
+        QueryBatch batch = new QueryBatch();
+        QueryOptions options = QueryOptions.DEFAULT.withFetchSize(7);
+        CompletableFuture<QueryOptions> used = HibernateHelper.withQueryOptions(options, () -> batch.add(session -> HibernateHelper.getQueryOptions()));
+        CompletableFuture<QueryOptions> defaults = batch.add(session -> HibernateHelper.getQueryOptions());
+        CompletableFuture<List<?>> users = batch.queryAll("from User");
+
+        batch.execute();
+        assertThat(used.join()).isSameAs(options);
+        assertThat(defaults.join()).isSameAs(HibernateHelper.getDefaultQueryOptions());
+        assertThat(users.join()).isNotNull();
+    }
+
+    @Test
+    void testExecute_failure() {
+        QueryBatch batch = new QueryBatch();
+        CompletableFuture<Long> failed = batch.querySQLCount("SELECT * FROM NO_SUCH_TABLE");
+        CompletableFuture<Long> count = batch.querySQLCount("VALUES (1)");
+
+        batch.execute();
+        assertThatExceptionOfType(CompletionException.class).isThrownBy(failed::join);
+        assertThat(count.join()).isEqualTo(1L);
+    }
+
+    @Test
+    void testExecute_twice() {
+        QueryBatch batch = new QueryBatch();
+        batch.querySQLCount("VALUES (1)");
+        batch.execute();
+
+        assertThatIllegalStateException().isThrownBy(batch::execute);
+        assertThatIllegalStateException().isThrownBy(() -> batch.querySQLCount("VALUES (1)"));
+    }
+}
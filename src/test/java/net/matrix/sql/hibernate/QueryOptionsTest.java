@@ -0,0 +1,87 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import net.matrix.sql.hibernate.entity.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryOptionsTest {
+    @BeforeAll
+    static void beforeAll() {
+        SessionFactoryManager.getInstance();
+    }
+
+    @Test
+    void testWith() {
+        QueryOptions options = QueryOptions.DEFAULT.withFetchSize(500).withTimeout(Duration.ofSeconds(5)).withReadOnly(true).withCache("reference")
+            .withFlushMode(FlushMode.COMMIT);
+
+        assertThat(options.getFetchSize()).isEqualTo(500);
+        assertThat(options.getTimeout()).isEqualTo(Duration.ofSeconds(5));
+        assertThat(options.getReadOnly()).isTrue();
+        assertThat(options.isCacheable()).isTrue();
+        assertThat(options.getCacheRegion()).isEqualTo("reference");
+        assertThat(options.getFlushMode()).isEqualTo(FlushMode.COMMIT);
+        assertThat(QueryOptions.DEFAULT.getFetchSize()).isZero();
+        assertThat(QueryOptions.DEFAULT.withFetchSize(-1).getFetchSize()).isZero();
+    }
+
+    @Test
+    void testWithQueryOptions()
+        throws SQLException {
+        QueryOptions options = QueryOptions.DEFAULT.withFetchSize(2).withTimeout(Duration.ofMillis(1500)).withReadOnly(true);
+        User user = new User();
+        user.setName("queryOptions");
+
+        HibernateHelper.beginTransaction();
+        try {
+            Session session = SessionFactoryManager.getInstance().getTransactionContext().getSession();
+            session.persist(user);
+            session.flush();
+            session.clear();
+
+            List<User> result = HibernateHelper.withQueryOptions(options,
+                () -> HibernateHelper.queryAll(User.class, "from User u where u.name = :p0", "queryOptions"));
+            assertThat(result).hasSize(1);
+            assertThat(session.isReadOnly(result.get(0))).isTrue();
+            assertThat(session.isDefaultReadOnly()).isFalse();
+
+            String sql = "VALUES (2)";
+            assertThat(HibernateHelper.querySQLCount(sql)).isEqualTo(2L);
+            PreparedStatement statement = NativeStatementCache.of(session).getCached(sql);
+            int fetchSize = statement.getFetchSize();
+            int queryTimeout = statement.getQueryTimeout();
+
+            session.doWork(connection -> {
+                try (PreparedStatement applied = connection.prepareStatement(sql)) {
+                    options.applyTo(applied);
+                    assertThat(applied.getFetchSize()).isEqualTo(2);
+                    assertThat(applied.getQueryTimeout()).isEqualTo(2);
+                }
+            });
+
+            // 放回缓存时恢复语句原有的设置
+            long count = HibernateHelper.withQueryOptions(options, () -> HibernateHelper.querySQLCount(sql));
+            assertThat(count).isEqualTo(2L);
+            assertThat(NativeStatementCache.of(session).getCached(sql)).isSameAs(statement);
+            assertThat(statement.getFetchSize()).isEqualTo(fetchSize);
+            assertThat(statement.getQueryTimeout()).isEqualTo(queryTimeout);
+        } finally {
+            HibernateHelper.rollbackTransaction();
+            HibernateHelper.releaseTransaction();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import net.matrix.sql.hibernate.entity.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryResultCacheTest {
+    @BeforeAll
+    static void beforeAll() {
+        SessionFactoryManager.getInstance();
+    }
+
+    @AfterEach
+    void afterEach() {
+        HibernateHelper.setQueryResultCache(null);
+    }
+
+    @Test
+    void testGet() {
+        QueryResultCache cache = new QueryResultCache(16, Duration.ofMinutes(1));
+        HibernateHelper.setQueryResultCache(cache);
+
+        String sql = "SELECT COUNT(*) FROM (VALUES ('abc'), ('123'), ('xyz')) AS T (C) WHERE C <> ?";
+        assertThat(HibernateHelper.querySQLCount(sql, List.of("abc"))).isEqualTo(2L);
+        assertThat(HibernateHelper.querySQLCount(sql, List.of("abc"))).isEqualTo(2L);
+        assertThat(HibernateHelper.querySQLCount(sql, List.of("none"))).isEqualTo(3L);
+        assertThat(cache.getHitCount()).isEqualTo(1L);
+        assertThat(cache.getMissCount()).isEqualTo(2L);
+        assertThat(cache.getHitRate()).isEqualTo(1.0 / 3);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testInvalidate() {
+        QueryResultCache cache = new QueryResultCache(16, Duration.ofMinutes(1));
+        HibernateHelper.setQueryResultCache(cache);
+        long count = HibernateHelper.queryCount("select count(*) from User where name = 'resultCache'");
+        HibernateHelper.querySQLCount("VALUES (1)");
+        assertThat(cache.size()).isEqualTo(2);
+
+        User user = new User();
+        user.setName("resultCache");
+        HibernateHelper.beginTransaction();
+        try {
+            HibernateHelper.create(user);
+            assertThat(cache.size()).isEqualTo(1);
+            // 查询前自动刷新执行了插入，使所有缓存项失效
+            assertThat(HibernateHelper.queryCount("select count(*) from User where name = 'resultCache'")).isEqualTo(count + 1);
+            assertThat(cache.size()).isZero();
+        } finally {
+            HibernateHelper.rollbackTransaction();
+            HibernateHelper.releaseTransaction();
+        }
+        assertThat(HibernateHelper.queryCount("select count(*) from User where name = 'resultCache'")).isEqualTo(count);
+    }
+
+    @Test
+    void testGet_entity() {
+        User user = new User();
+        user.setName("resultCacheEntity");
+        HibernateHelper.inTransaction(context -> {
+            HibernateHelper.create(context, user);
+            return null;
+        });
+        QueryResultCache cache = new QueryResultCache(16, Duration.ofMinutes(1));
+        HibernateHelper.setQueryResultCache(cache);
+        try {
+            String where = " from User u where u.name = 'resultCacheEntity'";
+            assertThat(HibernateHelper.queryAll("select u" + where)).hasSize(1);
+            assertThat(HibernateHelper.queryAll("select u, u.name" + where)).hasSize(1);
+            assertThat(HibernateHelper.queryAll("select new list(u.name, u)" + where)).hasSize(1);
+            assertThat(HibernateHelper.queryAll("select u.name" + where)).hasSize(1);
+            assertThat(cache.size()).isEqualTo(1);
+            assertThat(cache.getMissCount()).isEqualTo(1L);
+        } finally {
+            HibernateHelper.setQueryResultCache(null);
+            HibernateHelper.inTransaction(context -> {
+                HibernateHelper.delete(context, User.class, user.getId());
+                return null;
+            });
+        }
+    }
+
+    @Test
+    void testSetQueryResultCache_trackSession() {
+        QueryResultCache cache = new QueryResultCache(16, Duration.ofMinutes(1));
+        HibernateHelper.setQueryResultCache(cache);
+        try (Session session = SessionFactoryManager.getInstance().createSession()) {
+            session.beginTransaction();
+            try {
+                // 建立时已开始跟踪，事务开始前没有修改，可以使用缓存
+                HibernateHelper.querySQLCount(session, "VALUES (1)");
+                assertThat(cache.size()).isEqualTo(1);
+            } finally {
+                session.getTransaction().rollback();
+            }
+        }
+
+        HibernateHelper.setQueryResultCache(null);
+        try (Session session = SessionFactoryManager.getInstance().createSession()) {
+            session.beginTransaction();
+            try {
+                // 停用后建立的会话不再跟踪，重新启用时事务已经开始，不使用缓存
+                HibernateHelper.setQueryResultCache(cache);
+                HibernateHelper.querySQLCount(session, "VALUES (2)");
+                assertThat(cache.size()).isEqualTo(1);
+            } finally {
+                session.getTransaction().rollback();
+            }
+        }
+    }
+
+    @Test
+    void testInvalidate_flush() {
+        QueryResultCache cache = new QueryResultCache(16, Duration.ofMinutes(1));
+        HibernateHelper.setQueryResultCache(cache);
+        long count = HibernateHelper.queryCount("select count(*) from User where name = 'resultCacheFlush'");
+        assertThat(cache.size()).isEqualTo(1);
+
+        User user = new User();
+        user.setName("resultCacheFlush");
+        HibernateHelper.beginTransaction();
+        try {
+            Session session = SessionFactoryManager.getInstance().getTransactionContext().getSession();
+            session.persist(user);
+            session.flush();
+            assertThat(cache.size()).isZero();
+            assertThat(HibernateHelper.queryCount("select count(*) from User where name = 'resultCacheFlush'")).isEqualTo(count + 1);
+            assertThat(cache.size()).isZero();
+        } finally {
+            HibernateHelper.rollbackTransaction();
+            HibernateHelper.releaseTransaction();
+        }
+        assertThat(HibernateHelper.queryCount("select count(*) from User where name = 'resultCacheFlush'")).isEqualTo(count);
+    }
+}
@@ -6,6 +6,7 @@ package net.matrix.sql.hibernate;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
 
 import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
@@ -13,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import net.matrix.sql.ConnectionInfo;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 
 class SessionFactoryManagerTest {
     @Test
@@ -111,6 +113,68 @@ class SessionFactoryManagerTest {
         assertThat(manager.getTransactionContext()).isNotNull();
     }
 
+    @Test
+    void testReapTransactionContexts()
+        throws InterruptedException {
+        SessionFactoryManager manager = SessionFactoryManager.getInstance();
+        HibernateTransactionContext context = new HibernateTransactionContext(manager);
+        Thread thread = new Thread(context::getSession);
+        thread.start();
+        thread.join();
+        long reapedCount = manager.getReapedTransactionContextCount();
+
+        assertThat(manager.reapTransactionContexts(Duration.ofHours(1))).isPositive();
+        assertThat(context.getSessionOwner()).isNull();
+        assertThat(manager.getReapedTransactionContextCount()).isGreaterThan(reapedCount);
+    }
+
+    @Test
+    void testReapTransactionContexts_maxAge() {
+        SessionFactoryManager manager = SessionFactoryManager.getInstance();
+        HibernateTransactionContext context = new HibernateTransactionContext(manager);
+        context.begin();
+        long reapedCount = manager.getReapedTransactionContextCount();
+
+        assertThat(manager.reapTransactionContexts(Duration.ZERO)).isPositive();
+        assertThat(context.isAbandoned()).isTrue();
+        assertThat(context.getSessionOwner()).isSameAs(Thread.currentThread());
+        assertThat(context.isActive()).isTrue();
+        assertThatIllegalStateException().isThrownBy(context::getSession);
+        assertThat(context.isAbandoned()).isFalse();
+        assertThat(context.isActive()).isFalse();
+        assertThat(manager.getReapedTransactionContextCount()).isGreaterThan(reapedCount);
+
+        assertThat(context.getSession().isOpen()).isTrue();
+        context.release();
+    }
+
+    @Test
+    void testRegisterTransactionContext_releaseEnded()
+        throws InterruptedException {
+        SessionFactoryManager manager = SessionFactoryManager.getInstance();
+        HibernateTransactionContext context = new HibernateTransactionContext(manager);
+        Thread thread = new Thread(context::getSession);
+        thread.start();
+        thread.join();
+
+        HibernateTransactionContext other = new HibernateTransactionContext(manager);
+        other.getSession();
+        assertThat(context.getSessionCreateTime()).isNull();
+        other.release();
+    }
+
+    @Test
+    void testGetActiveTransactionContextCount() {
+        SessionFactoryManager manager = SessionFactoryManager.getInstance();
+        HibernateTransactionContext context = new HibernateTransactionContext(manager);
+        int count = manager.getActiveTransactionContextCount();
+
+        context.getSession();
+        assertThat(manager.getActiveTransactionContextCount()).isEqualTo(count + 1);
+        context.release();
+        assertThat(manager.getActiveTransactionContextCount()).isEqualTo(count);
+    }
+
     @Test
     void testGetConnectionInfo()
         throws SQLException {
@@ -0,0 +1,35 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.sql.hibernate;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+import org.hibernate.exception.LockAcquisitionException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionRetryPolicyTest {
+    @Test
+    void testIsRetriable() {
+        TransactionRetryPolicy policy = TransactionRetryPolicy.DEFAULT;
+
+        assertThat(policy.isRetriable(new LockAcquisitionException("deadlock", new SQLException("deadlock")))).isTrue();
+        assertThat(policy.isRetriable(new RuntimeException(new SQLException("serialization", "40001")))).isTrue();
+        assertThat(policy.isRetriable(new RuntimeException(new SQLException("syntax", "42000")))).isFalse();
+        assertThat(policy.isRetriable(new IllegalStateException())).isFalse();
+    }
+
+    @Test
+    void testGetBackoff() {
+        TransactionRetryPolicy policy = new TransactionRetryPolicy(5, Duration.ofMillis(10), Duration.ofMillis(30), Duration.ofSeconds(1));
+
+        assertThat(policy.getBackoff(1)).isBetween(Duration.ZERO, Duration.ofMillis(10));
+        assertThat(policy.getBackoff(2)).isBetween(Duration.ZERO, Duration.ofMillis(20));
+        assertThat(policy.getBackoff(10)).isBetween(Duration.ZERO, Duration.ofMillis(30));
+        assertThat(TransactionRetryPolicy.NONE.getBackoff(1)).isZero();
+    }
+}